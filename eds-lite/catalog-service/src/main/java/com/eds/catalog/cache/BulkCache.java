@@ -0,0 +1,27 @@
+package com.eds.catalog.cache;
+
+import org.springframework.cache.Cache.ValueWrapper;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache that can read and write many keys in one round trip, for batch lookups.
+ */
+public interface BulkCache {
+
+    /**
+     * Looks up all {@code keys} at once.
+     *
+     * @return one wrapper per key, in key order; null for misses
+     */
+    List<ValueWrapper> getAll(List<?> keys);
+
+    /**
+     * Stores all {@code values} (pipelined where the store supports it), recording the
+     * same compute time for each.
+     *
+     * @return the entries as written, by key
+     */
+    Map<Object, CacheEntry> putAll(Map<?, ?> values, long computeMs);
+}
@@ -0,0 +1,46 @@
+package com.eds.catalog.cache;
+
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cache hit that also carries how long the value took to compute and when it expires,
+ * so readers can decide to refresh it early (XFetch, "Optimal Probabilistic Cache
+ * Stampede Prevention").
+ */
+public class CacheEntry extends SimpleValueWrapper {
+    private final long computeMs;
+    private final long expiresAtMs;
+
+    public CacheEntry(Object value, long computeMs, long expiresAtMs) {
+        super(value);
+        this.computeMs = computeMs;
+        this.expiresAtMs = expiresAtMs;
+    }
+
+    public long getComputeMs() {
+        return computeMs;
+    }
+
+    public long getExpiresAtMs() {
+        return expiresAtMs;
+    }
+
+    /**
+     * XFetch: refresh when {@code now - computeMs * beta * ln(rand) >= expiry}. The
+     * probability rises as expiry approaches and is higher for values that are
+     * expensive to recompute. Entries without an expiry never refresh early.
+     */
+    public boolean shouldRefreshEarly(double beta, long defaultComputeMs) {
+        if (expiresAtMs <= 0) {
+            return false;
+        }
+        long delta = computeMs > 0 ? computeMs : defaultComputeMs;
+        double rand = ThreadLocalRandom.current().nextDouble();
+        if (rand == 0.0) {
+            rand = Double.MIN_VALUE;
+        }
+        return System.currentTimeMillis() - delta * beta * Math.log(rand) >= expiresAtMs;
+    }
+}
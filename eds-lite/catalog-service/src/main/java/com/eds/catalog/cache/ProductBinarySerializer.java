@@ -0,0 +1,229 @@
+package com.eds.catalog.cache;
+
+import com.eds.catalog.model.Product;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact, schema-versioned binary encoding for cached {@link Product}s.
+ *
+ * Layout: MAGIC, SCHEMA_VERSION, a presence bitmask for the nullable fields, then the
+ * present fields in declaration order. Integers are varints, strings are length-prefixed
+ * UTF-8, BigDecimal is scale + unscaled bytes, Instant is seconds + nanos.
+ *
+ * Anything that is not a Product is written with JDK serialization, and entries that
+ * start with the JDK stream header are read with JDK serialization, so entries written
+ * before the rollout stay readable until they expire.
+ */
+public class ProductBinarySerializer implements RedisSerializer<Object> {
+    static final byte MAGIC = (byte) 0xE5;
+    static final byte SCHEMA_VERSION = 1;
+
+    // JDK serialization stream header (STREAM_MAGIC = 0xACED)
+    private static final byte JDK_MAGIC_0 = (byte) 0xAC;
+    private static final byte JDK_MAGIC_1 = (byte) 0xED;
+
+    private static final int F_ID = 1;
+    private static final int F_NAME = 1 << 1;
+    private static final int F_DESCRIPTION = 1 << 2;
+    private static final int F_PRICE = 1 << 3;
+    private static final int F_STOCK = 1 << 4;
+    private static final int F_CATEGORY = 1 << 5;
+    private static final int F_TAGS = 1 << 6;
+    private static final int F_IMAGES = 1 << 7;
+    private static final int F_FEATURED = 1 << 8;
+    private static final int F_RATING = 1 << 9;
+    private static final int F_REVIEW_COUNT = 1 << 10;
+    private static final int F_VERSION = 1 << 11;
+    private static final int F_UPDATED_AT = 1 << 12;
+    // Added after SCHEMA_VERSION 1 shipped; written last so older readers just stop before it
+    private static final int F_RATING_SUM = 1 << 13;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        if (!(value instanceof Product product)) {
+            return jdkSerializer.serialize(value);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(MAGIC);
+            out.writeByte(SCHEMA_VERSION);
+            writeProduct(out, product);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize product " + product.getId(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length >= 2 && bytes[0] == JDK_MAGIC_0 && bytes[1] == JDK_MAGIC_1) {
+            return jdkSerializer.deserialize(bytes);
+        }
+        if (bytes[0] != MAGIC) {
+            throw new SerializationException("Unknown cache value encoding (first byte 0x"
+                    + Integer.toHexString(bytes[0] & 0xFF) + ")");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+            byte schemaVersion = in.readByte();
+            if (schemaVersion != SCHEMA_VERSION) {
+                throw new SerializationException("Unsupported product schema version " + schemaVersion);
+            }
+            return readProduct(in);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot deserialize product", e);
+        }
+    }
+
+    private static void writeProduct(DataOutputStream out, Product p) throws IOException {
+        int fields = 0;
+        if (p.getId() != null) fields |= F_ID;
+        if (p.getName() != null) fields |= F_NAME;
+        if (p.getDescription() != null) fields |= F_DESCRIPTION;
+        if (p.getPrice() != null) fields |= F_PRICE;
+        if (p.getStock() != null) fields |= F_STOCK;
+        if (p.getCategory() != null) fields |= F_CATEGORY;
+        if (p.getTags() != null) fields |= F_TAGS;
+        if (p.getImages() != null) fields |= F_IMAGES;
+        if (p.isFeatured()) fields |= F_FEATURED;
+        if (p.getRating() != null) fields |= F_RATING;
+        if (p.getReviewCount() != null) fields |= F_REVIEW_COUNT;
+        if (p.getVersion() != null) fields |= F_VERSION;
+        if (p.getUpdatedAt() != null) fields |= F_UPDATED_AT;
+        if (p.getRatingSum() != null) fields |= F_RATING_SUM;
+        writeVarInt(out, fields);
+
+        if ((fields & F_ID) != 0) writeString(out, p.getId());
+        if ((fields & F_NAME) != 0) writeString(out, p.getName());
+        if ((fields & F_DESCRIPTION) != 0) writeString(out, p.getDescription());
+        if ((fields & F_PRICE) != 0) {
+            writeVarInt(out, zigZag(p.getPrice().scale()));
+            byte[] unscaled = p.getPrice().unscaledValue().toByteArray();
+            writeVarInt(out, unscaled.length);
+            out.write(unscaled);
+        }
+        if ((fields & F_STOCK) != 0) writeVarInt(out, zigZag(p.getStock()));
+        if ((fields & F_CATEGORY) != 0) writeString(out, p.getCategory());
+        if ((fields & F_TAGS) != 0) writeStrings(out, p.getTags());
+        if ((fields & F_IMAGES) != 0) writeStrings(out, p.getImages());
+        if ((fields & F_RATING) != 0) out.writeDouble(p.getRating());
+        if ((fields & F_REVIEW_COUNT) != 0) writeVarInt(out, zigZag(p.getReviewCount()));
+        if ((fields & F_VERSION) != 0) writeVarInt(out, zigZag(p.getVersion()));
+        if ((fields & F_UPDATED_AT) != 0) {
+            out.writeLong(p.getUpdatedAt().getEpochSecond());
+            writeVarInt(out, p.getUpdatedAt().getNano());
+        }
+        if ((fields & F_RATING_SUM) != 0) out.writeLong(p.getRatingSum());
+    }
+
+    private static Product readProduct(DataInputStream in) throws IOException {
+        int fields = readVarInt(in);
+        Product p = new Product();
+        p.setUpdatedAt(null);
+
+        if ((fields & F_ID) != 0) p.setId(readString(in));
+        if ((fields & F_NAME) != 0) p.setName(readString(in));
+        if ((fields & F_DESCRIPTION) != 0) p.setDescription(readString(in));
+        if ((fields & F_PRICE) != 0) {
+            int scale = unZigZag(readVarInt(in));
+            byte[] unscaled = new byte[readVarInt(in)];
+            in.readFully(unscaled);
+            p.setPrice(new BigDecimal(new BigInteger(unscaled), scale));
+        }
+        if ((fields & F_STOCK) != 0) p.setStock(unZigZag(readVarInt(in)));
+        if ((fields & F_CATEGORY) != 0) p.setCategory(readString(in));
+        if ((fields & F_TAGS) != 0) p.setTags(readStrings(in));
+        if ((fields & F_IMAGES) != 0) p.setImages(readStrings(in));
+        p.setFeatured((fields & F_FEATURED) != 0);
+        if ((fields & F_RATING) != 0) p.setRating(in.readDouble());
+        if ((fields & F_REVIEW_COUNT) != 0) p.setReviewCount(unZigZag(readVarInt(in)));
+        if ((fields & F_VERSION) != 0) p.setVersion(unZigZag(readVarInt(in)));
+        if ((fields & F_UPDATED_AT) != 0) {
+            long seconds = in.readLong();
+            p.setUpdatedAt(Instant.ofEpochSecond(seconds, readVarInt(in)));
+        }
+        if ((fields & F_RATING_SUM) != 0) p.setRatingSum(in.readLong());
+        return p;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] utf8 = new byte[readVarInt(in)];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        writeVarInt(out, values.size());
+        for (String value : values) {
+            // Lists from Mongo never hold nulls; store them as empty strings just in case
+            writeString(out, value != null ? value : "");
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = readVarInt(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
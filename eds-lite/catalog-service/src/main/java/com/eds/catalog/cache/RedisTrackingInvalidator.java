@@ -0,0 +1,211 @@
+package com.eds.catalog.cache;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.codec.StringCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.CacheManager;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the L1 near cache coherent through Redis server-assisted client-side caching
+ * (CLIENT TRACKING, RESP3) instead of waiting for the cache.invalidate Kafka topic.
+ *
+ * A dedicated connection enables tracking in broadcast mode for the cache's key
+ * prefix, so Redis pushes the name of every productById key that is written, deleted
+ * or expires, by any client. For each pushed product the handler reads the version
+ * sidecar and drops the L1 (and pinned) copy unless it is at least as new as Redis.
+ * That check is what keeps this instance's own writes (loads, refresh-ahead) from
+ * evicting the copy it just cached.
+ *
+ * Invalidations sent while the connection is down are lost, so on reconnect tracking
+ * is switched back on and L1 is cleared. The Kafka listener keeps running alongside;
+ * whichever transport arrives first does the eviction.
+ */
+public class RedisTrackingInvalidator implements AutoCloseable {
+    private static final String VERSION_SUFFIX = "::v";
+    private static final String LOCK_SUFFIX = "::lock";
+
+    private final RedisURI redisUri;
+    private final CacheManager cacheManager;
+    private final String cacheName;
+    private final String prefix;
+    // Push messages arrive on the Netty event loop; the version lookup must not block it
+    private final ExecutorService handler = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "redis-tracking-invalidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter messages;
+    private final Counter evictions;
+    private final Counter keptNewer;
+    private final Counter flushes;
+    private final Timer handleTimer;
+    private RedisClient client;
+    private StatefulRedisConnection<String, String> connection;
+    private volatile boolean connectedOnce;
+
+    public RedisTrackingInvalidator(RedisURI redisUri, CacheManager cacheManager, String cacheName,
+                                    MeterRegistry meterRegistry) {
+        this.redisUri = redisUri;
+        this.cacheManager = cacheManager;
+        this.cacheName = cacheName;
+        this.prefix = cacheName + "::";
+        this.messages = Counter.builder("l1_tracking_invalidations").register(meterRegistry);
+        this.evictions = Counter.builder("l1_tracking_evictions").register(meterRegistry);
+        this.keptNewer = Counter.builder("l1_tracking_kept_newer").register(meterRegistry);
+        this.flushes = Counter.builder("l1_tracking_flushes").register(meterRegistry);
+        this.handleTimer = Timer.builder("l1_tracking_handle_latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        if (!(cacheManager instanceof TwoTierCacheManager)) {
+            System.out.println("RedisTrackingInvalidator: L1 is disabled, nothing to track");
+            return;
+        }
+        try {
+            client = RedisClient.create(redisUri);
+            connection = client.connect();
+            connection.addListener(this::onPushMessage);
+            connection.addListener(new RedisConnectionStateListener() {
+                @Override
+                public void onRedisConnected(RedisChannelHandler<?, ?> channel, SocketAddress address) {
+                    if (connectedOnce) {
+                        onReconnected();
+                    }
+                }
+            });
+            connection.sync().clientTracking(trackingArgs());
+            connectedOnce = true;
+            System.out.println("RedisTrackingInvalidator: tracking " + prefix + "* (RESP3 broadcast)");
+        } catch (Exception e) {
+            // Redis < 6 or RESP2 only: L1 keeps relying on Kafka
+            System.err.println("RedisTrackingInvalidator: could not enable client tracking: " + e.getMessage());
+            close();
+        }
+    }
+
+    private TrackingArgs trackingArgs() {
+        return TrackingArgs.Builder.enabled().bcast().prefixes(prefix);
+    }
+
+    private void onPushMessage(PushMessage message) {
+        if (!"invalidate".equals(message.getType())) {
+            return;
+        }
+        messages.increment();
+        List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+        Object keys = content.size() > 1 ? content.get(1) : null;
+        if (!(keys instanceof List<?> keyList)) {
+            // A null key list means the database was flushed
+            handler.execute(this::clearLocal);
+            return;
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (Object key : keyList) {
+            String id = toId(String.valueOf(key));
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+        if (!ids.isEmpty()) {
+            handler.execute(() -> handleTimer.record(() -> evictStale(ids)));
+        }
+    }
+
+    // productById::<id> and productById::<id>::v map to <id>; load leases are ignored
+    private String toId(String key) {
+        if (!key.startsWith(prefix) || key.endsWith(LOCK_SUFFIX)) {
+            return null;
+        }
+        String id = key.substring(prefix.length());
+        return id.endsWith(VERSION_SUFFIX) ? id.substring(0, id.length() - VERSION_SUFFIX.length()) : id;
+    }
+
+    private void evictStale(Set<String> ids) {
+        TwoTierCacheManager twoTierCacheManager = (TwoTierCacheManager) cacheManager;
+        List<String> sidecars = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            sidecars.add(prefix + id + VERSION_SUFFIX);
+        }
+        List<Integer> versions = new ArrayList<>(ids.size());
+        try {
+            connection.sync().mget(sidecars.toArray(new String[0]))
+                    .forEach(value -> versions.add(value.hasValue() ? parseVersion(value.getValue()) : null));
+        } catch (Exception e) {
+            // Can't tell which copies are current: drop them all
+            System.err.println("RedisTrackingInvalidator: version lookup failed: " + e.getMessage());
+            ids.forEach(id -> versions.add(null));
+        }
+
+        int i = 0;
+        for (String id : ids) {
+            Integer version = versions.get(i++);
+            // Keep a local copy that is at least as new as what Redis holds now
+            boolean evicted = twoTierCacheManager.evictLocalIfNotNewer(cacheName, id, version != null ? version - 1 : null);
+            if (evicted) {
+                evictions.increment();
+            } else if (version != null) {
+                keptNewer.increment();
+            }
+        }
+    }
+
+    // Sidecar is version:computeMs:expiresAtMs
+    private static Integer parseVersion(String sidecar) {
+        try {
+            int end = sidecar.indexOf(':');
+            return Integer.parseInt(end >= 0 ? sidecar.substring(0, end) : sidecar);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void onReconnected() {
+        // Runs on the event loop: re-enable asynchronously, then drop everything that
+        // might have changed while we were not listening
+        connection.async().clientTracking(trackingArgs()).whenComplete((reply, error) -> {
+            if (error != null) {
+                System.err.println("RedisTrackingInvalidator: could not re-enable tracking: " + error.getMessage());
+            }
+        });
+        handler.execute(this::clearLocal);
+    }
+
+    private void clearLocal() {
+        flushes.increment();
+        ((TwoTierCacheManager) cacheManager).clearLocal(cacheName);
+    }
+
+    @Override
+    public void close() {
+        handler.shutdownNow();
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+            if (client != null) {
+                client.shutdown(0, 2, TimeUnit.SECONDS);
+            }
+        } catch (Exception e) {
+            System.err.println("RedisTrackingInvalidator: shutdown failed: " + e.getMessage());
+        }
+    }
+}
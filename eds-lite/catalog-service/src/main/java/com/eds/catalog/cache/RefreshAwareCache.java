@@ -0,0 +1,15 @@
+package com.eds.catalog.cache;
+
+/**
+ * A cache that records how long a value took to compute alongside the value, so hits
+ * can be returned as {@link CacheEntry}s and refreshed early.
+ */
+public interface RefreshAwareCache {
+
+    /**
+     * Stores {@code value} together with its compute time.
+     *
+     * @return the entry as written, including its expiry
+     */
+    CacheEntry put(Object key, Object value, long computeMs);
+}
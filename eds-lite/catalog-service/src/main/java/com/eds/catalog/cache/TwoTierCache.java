@@ -0,0 +1,423 @@
+package com.eds.catalog.cache;
+
+import com.eds.catalog.model.Product;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Near cache: a bounded in-process L1 (Caffeine, W-TinyLFU eviction) in front of
+ * the shared Redis L2. Reads try L1 first, fall back to Redis and promote the value
+ * into L1. Writes and evictions go to both tiers.
+ *
+ * L1 entries have a short TTL so an instance that misses an invalidation broadcast
+ * can only serve a stale value for a bounded time.
+ *
+ * Hot keys can additionally be pinned (see HotKeyPinner): a pinned value is served
+ * ahead of L1, is exempt from L1 size eviction and uses its own, longer TTL. Every
+ * eviction path drops the pinned copy as well.
+ */
+public class TwoTierCache implements Cache, VersionAwareCache, RefreshAwareCache, BulkCache {
+    private final String name;
+    private final Cache remote;
+    // Holds the wrapper rather than the bare value so CacheEntry metadata survives in L1
+    private final com.github.benmanes.caffeine.cache.Cache<Object, ValueWrapper> local;
+    private final ConcurrentMap<Object, Pinned> pinned = new ConcurrentHashMap<>();
+
+    private record Pinned(ValueWrapper wrapper, long expiresAtMs) {}
+
+    private final Counter pinnedHits;
+    private final Counter l1Hits;
+    private final Counter l1Misses;
+    private final Counter l1Evictions;
+    private final Counter l2Hits;
+    private final Counter l2Misses;
+    private final Counter l2Evictions;
+    private final Timer l1GetTimer;
+    private final Timer l2GetTimer;
+
+    public TwoTierCache(Cache remote, long maximumSize, Duration localTtl, MeterRegistry meterRegistry) {
+        this.name = remote.getName();
+        this.remote = remote;
+
+        this.pinnedHits = tierCounter("cache_tier_hits", "pinned", meterRegistry);
+        this.l1Hits = tierCounter("cache_tier_hits", "l1", meterRegistry);
+        this.l1Misses = tierCounter("cache_tier_misses", "l1", meterRegistry);
+        this.l1Evictions = tierCounter("cache_tier_evictions", "l1", meterRegistry);
+        this.l2Hits = tierCounter("cache_tier_hits", "l2", meterRegistry);
+        this.l2Misses = tierCounter("cache_tier_misses", "l2", meterRegistry);
+        this.l2Evictions = tierCounter("cache_tier_evictions", "l2", meterRegistry);
+        this.l1GetTimer = tierTimer("l1", meterRegistry);
+        this.l2GetTimer = tierTimer("l2", meterRegistry);
+
+        this.local = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTtl)
+                .removalListener((Object key, ValueWrapper value, RemovalCause cause) -> {
+                    // Explicit evictions are counted in evict(); only count size/expiry here
+                    if (cause.wasEvicted()) {
+                        l1Evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    private Counter tierCounter(String metric, String tier, MeterRegistry meterRegistry) {
+        return Counter.builder(metric)
+                .tag("cache", name)
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private Timer tierTimer(String tier, MeterRegistry meterRegistry) {
+        return Timer.builder("cache_tier_get_latency")
+                .tag("cache", name)
+                .tag("tier", tier)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper pinnedWrapper = getPinned(key);
+        if (pinnedWrapper != null) {
+            pinnedHits.increment();
+            return pinnedWrapper;
+        }
+
+        long start = System.nanoTime();
+        ValueWrapper localWrapper = local.getIfPresent(key);
+        l1GetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (localWrapper != null) {
+            l1Hits.increment();
+            return localWrapper;
+        }
+        l1Misses.increment();
+
+        start = System.nanoTime();
+        ValueWrapper wrapper = remote.get(key);
+        l2GetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (wrapper == null || wrapper.get() == null) {
+            l2Misses.increment();
+            return wrapper;
+        }
+        l2Hits.increment();
+        local.put(key, wrapper);
+        return wrapper;
+    }
+
+    @Override
+    public List<ValueWrapper> getAll(List<?> keys) {
+        List<ValueWrapper> wrappers = new ArrayList<>(keys.size());
+        List<Integer> missIndexes = new ArrayList<>();
+        int pinnedCount = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.size(); i++) {
+            ValueWrapper localWrapper = getPinned(keys.get(i));
+            if (localWrapper != null) {
+                pinnedCount++;
+            } else {
+                localWrapper = local.getIfPresent(keys.get(i));
+            }
+            wrappers.add(localWrapper);
+            if (localWrapper == null) {
+                missIndexes.add(i);
+            }
+        }
+        l1GetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        pinnedHits.increment(pinnedCount);
+        l1Hits.increment(keys.size() - missIndexes.size() - pinnedCount);
+        l1Misses.increment(missIndexes.size());
+        if (missIndexes.isEmpty()) {
+            return wrappers;
+        }
+
+        // Everything L1 did not have goes to Redis in one batch
+        List<Object> missKeys = new ArrayList<>(missIndexes.size());
+        for (int index : missIndexes) {
+            missKeys.add(keys.get(index));
+        }
+        start = System.nanoTime();
+        List<ValueWrapper> remoteWrappers;
+        if (remote instanceof BulkCache bulkRemote) {
+            remoteWrappers = bulkRemote.getAll(missKeys);
+        } else {
+            remoteWrappers = new ArrayList<>(missKeys.size());
+            for (Object key : missKeys) {
+                remoteWrappers.add(remote.get(key));
+            }
+        }
+        l2GetTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        for (int i = 0; i < missIndexes.size(); i++) {
+            ValueWrapper wrapper = remoteWrappers.get(i);
+            if (wrapper == null || wrapper.get() == null) {
+                l2Misses.increment();
+                continue;
+            }
+            l2Hits.increment();
+            local.put(missKeys.get(i), wrapper);
+            wrappers.set(missIndexes.get(i), wrapper);
+        }
+        return wrappers;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            return (T) wrapper.get();
+        }
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        if (value != null) {
+            ValueWrapper wrapper = new SimpleValueWrapper(value);
+            local.put(key, wrapper);
+            repin(key, wrapper);
+        } else {
+            local.invalidate(key);
+            pinned.remove(key);
+        }
+    }
+
+    @Override
+    public CacheEntry put(Object key, Object value, long computeMs) {
+        if (!(remote instanceof RefreshAwareCache refreshAwareRemote)) {
+            put(key, value);
+            return new CacheEntry(value, computeMs, 0);
+        }
+        CacheEntry entry = refreshAwareRemote.put(key, value, computeMs);
+        if (value != null) {
+            local.put(key, entry);
+            repin(key, entry);
+        } else {
+            local.invalidate(key);
+            pinned.remove(key);
+        }
+        return entry;
+    }
+
+    @Override
+    public Map<Object, CacheEntry> putAll(Map<?, ?> values, long computeMs) {
+        Map<Object, CacheEntry> entries;
+        if (remote instanceof BulkCache bulkRemote) {
+            entries = bulkRemote.putAll(values, computeMs);
+        } else {
+            entries = new LinkedHashMap<>();
+            values.forEach((key, value) -> {
+                remote.put(key, value);
+                entries.put(key, new CacheEntry(value, computeMs, 0));
+            });
+        }
+        entries.forEach((key, entry) -> {
+            if (entry.get() != null) {
+                local.put(key, entry);
+                repin(key, entry);
+            } else {
+                local.invalidate(key);
+                pinned.remove(key);
+            }
+        });
+        return entries;
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = remote.putIfAbsent(key, value);
+        ValueWrapper current = existing != null ? existing : new SimpleValueWrapper(value);
+        if (current.get() != null) {
+            local.put(key, current);
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        l2Evictions.increment();
+        evictLocal(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean evicted = remote.evictIfPresent(key);
+        if (evicted) {
+            l2Evictions.increment();
+        }
+        return evictLocal(key) || evicted;
+    }
+
+    /**
+     * Drops the key from this JVM's L1 only. Used when another instance (or the
+     * invalidation consumer) has already taken care of Redis.
+     */
+    public boolean evictLocal(Object key) {
+        boolean wasPinned = pinned.remove(key) != null;
+        if (local.asMap().remove(key) != null || wasPinned) {
+            l1Evictions.increment();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean evictIfNotNewer(Object key, Integer version) {
+        boolean evicted;
+        if (remote instanceof VersionAwareCache versionAwareRemote) {
+            evicted = versionAwareRemote.evictIfNotNewer(key, version);
+        } else {
+            remote.evict(key);
+            evicted = true;
+        }
+        if (evicted) {
+            l2Evictions.increment();
+        }
+        evictLocalIfNotNewer(key, version);
+        return evicted;
+    }
+
+    @Override
+    public List<Object> evictAllIfNotNewer(Map<?, Integer> versions) {
+        List<Object> kept;
+        if (remote instanceof VersionAwareCache versionAwareRemote) {
+            kept = versionAwareRemote.evictAllIfNotNewer(versions);
+        } else {
+            versions.keySet().forEach(remote::evict);
+            kept = List.of();
+        }
+        l2Evictions.increment(versions.size() - kept.size());
+        versions.forEach(this::evictLocalIfNotNewer);
+        return kept;
+    }
+
+    /**
+     * L1 counterpart of {@link #evictIfNotNewer}: keeps the local copy if it is
+     * already newer than the event version.
+     */
+    public boolean evictLocalIfNotNewer(Object key, Integer version) {
+        boolean[] removed = {false};
+        pinned.computeIfPresent(key, (k, pin) -> {
+            if (isNewer(pin.wrapper(), version)) {
+                return pin;
+            }
+            removed[0] = true;
+            return null;
+        });
+        local.asMap().computeIfPresent(key, (k, wrapper) -> {
+            if (isNewer(wrapper, version)) {
+                return wrapper;
+            }
+            removed[0] = true;
+            return null;
+        });
+        if (removed[0]) {
+            l1Evictions.increment();
+        }
+        return removed[0];
+    }
+
+    private static boolean isNewer(ValueWrapper wrapper, Integer version) {
+        return version != null && wrapper.get() instanceof Product product
+                && product.getVersion() != null && product.getVersion() > version;
+    }
+
+    /**
+     * Pins {@code value} in this JVM until {@code ttl} passes or the key is evicted.
+     * Does not write to Redis; the caller has already put the value through {@link #put}.
+     */
+    public void pin(Object key, Object value, Duration ttl) {
+        pinned.put(key, new Pinned(new SimpleValueWrapper(value), System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    public void unpin(Object key) {
+        pinned.remove(key);
+    }
+
+    public Set<Object> pinnedKeys() {
+        return Set.copyOf(pinned.keySet());
+    }
+
+    private ValueWrapper getPinned(Object key) {
+        Pinned pin = pinned.get(key);
+        if (pin == null) {
+            return null;
+        }
+        if (pin.expiresAtMs() <= System.currentTimeMillis()) {
+            pinned.remove(key, pin);
+            return null;
+        }
+        return pin.wrapper();
+    }
+
+    // A newer value written for a pinned key replaces the pinned copy, keeping its expiry
+    private void repin(Object key, ValueWrapper wrapper) {
+        pinned.computeIfPresent(key, (k, pin) -> new Pinned(wrapper, pin.expiresAtMs()));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        pinned.clear();
+    }
+
+    /**
+     * Drops this JVM's L1 and pinned copies only.
+     */
+    public void clearLocal() {
+        local.invalidateAll();
+        pinned.clear();
+    }
+
+    public long localSize() {
+        return local.estimatedSize();
+    }
+}
@@ -0,0 +1,69 @@
+package com.eds.catalog.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Composite CacheManager that layers a {@link TwoTierCache} L1 over every cache
+ * handed out by the remote (Redis) CacheManager.
+ */
+public class TwoTierCacheManager implements CacheManager {
+    private final CacheManager remoteCacheManager;
+    private final long maximumSize;
+    private final Duration localTtl;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, TwoTierCache> caches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CacheManager remoteCacheManager,
+                               long maximumSize,
+                               Duration localTtl,
+                               MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.maximumSize = maximumSize;
+        this.localTtl = localTtl;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoTierCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, n -> new TwoTierCache(remote, maximumSize, localTtl, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    /**
+     * Evicts a key from this instance's L1 only, leaving Redis untouched. The local
+     * copy is kept if it is already newer than {@code version}.
+     */
+    public boolean evictLocalIfNotNewer(String cacheName, Object key, Integer version) {
+        TwoTierCache cache = caches.get(cacheName);
+        return cache != null && cache.evictLocalIfNotNewer(key, version);
+    }
+
+    /**
+     * Drops every L1 entry of the cache on this instance, leaving Redis untouched.
+     */
+    public void clearLocal(String cacheName) {
+        TwoTierCache cache = caches.get(cacheName);
+        if (cache != null) {
+            cache.clearLocal();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.eds.catalog.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache that can evict an entry only when the cached copy is not newer than the
+ * version carried by an invalidation event. Late or replayed events then leave
+ * fresher entries alone instead of forcing a pointless reload from Mongo.
+ */
+public interface VersionAwareCache {
+
+    /**
+     * Evicts {@code key} if its cached version is lower than or equal to {@code version},
+     * or unconditionally when {@code version} is null (e.g. a delete).
+     *
+     * @return false if the entry was kept because it is newer than the event
+     */
+    boolean evictIfNotNewer(Object key, Integer version);
+
+    /**
+     * Batch form of {@link #evictIfNotNewer}, for events that carry many keys.
+     * Implementations should apply the whole batch in one round trip.
+     *
+     * @param versions event version per key (null values evict unconditionally)
+     * @return the keys that were kept because the cached copy is newer
+     */
+    default List<Object> evictAllIfNotNewer(Map<?, Integer> versions) {
+        List<Object> kept = new ArrayList<>();
+        versions.forEach((key, version) -> {
+            if (!evictIfNotNewer(key, version)) {
+                kept.add(key);
+            }
+        });
+        return kept;
+    }
+}
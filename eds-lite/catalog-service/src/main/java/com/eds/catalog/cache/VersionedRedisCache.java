@@ -0,0 +1,267 @@
+package com.eds.catalog.cache;
+
+import com.eds.catalog.model.Product;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RedisCache that stores the entity version of every cached Product in a sidecar
+ * key ({@code productById::<id>::v}) next to the value, so invalidations can be
+ * applied with a server-side compare-and-delete.
+ *
+ * The sidecar is {@code version:computeMs:expiresAtMs}. Reads fetch value and sidecar
+ * with one MGET and return a {@link CacheEntry} so callers can refresh early. Batch
+ * reads fetch every value and sidecar in a single MGET; batch writes are pipelined.
+ */
+public class VersionedRedisCache extends RedisCache implements VersionAwareCache, RefreshAwareCache, BulkCache {
+
+    // KEYS[1] = value key, KEYS[2] = version key, ARGV[1] = value, ARGV[2] = metadata, ARGV[3] = ttl ms
+    private static final byte[] PUT_SCRIPT = ("""
+            if tonumber(ARGV[3]) > 0 then
+              redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[3])
+              redis.call('SET', KEYS[2], ARGV[2], 'PX', ARGV[3])
+            else
+              redis.call('SET', KEYS[1], ARGV[1])
+              redis.call('SET', KEYS[2], ARGV[2])
+            end
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // KEYS[1] = value key, KEYS[2] = version key, ARGV[1] = event version
+    // Keeps the entry only if the cached version is strictly newer than the event.
+    private static final byte[] EVICT_IF_NOT_NEWER_SCRIPT = ("""
+            local cached = redis.call('GET', KEYS[2])
+            if cached and tonumber(string.match(cached, '^%-?%d+')) > tonumber(ARGV[1]) then
+              return 0
+            end
+            redis.call('DEL', KEYS[1], KEYS[2])
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // KEYS = value key and version key for each entry, ARGV[i] = event version for the
+    // i-th pair ('' evicts unconditionally). Everything that is not newer goes in one
+    // UNLINK (chunked to stay under Lua's unpack limit). Returns the indexes kept.
+    private static final byte[] EVICT_ALL_IF_NOT_NEWER_SCRIPT = ("""
+            local kept = {}
+            local doomed = {}
+            for i = 1, #ARGV do
+              local keep = false
+              if ARGV[i] ~= '' then
+                local cached = redis.call('GET', KEYS[2 * i])
+                keep = cached and tonumber(string.match(cached, '^%-?%d+')) > tonumber(ARGV[i])
+              end
+              if keep then
+                kept[#kept + 1] = i
+              else
+                doomed[#doomed + 1] = KEYS[2 * i - 1]
+                doomed[#doomed + 1] = KEYS[2 * i]
+              end
+            end
+            for i = 1, #doomed, 1000 do
+              redis.call('UNLINK', unpack(doomed, i, math.min(i + 999, #doomed)))
+            end
+            return kept
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory connectionFactory;
+
+    protected VersionedRedisCache(String name,
+                                  RedisCacheWriter cacheWriter,
+                                  RedisCacheConfiguration cacheConfiguration,
+                                  RedisConnectionFactory connectionFactory) {
+        super(name, cacheWriter, cacheConfiguration);
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String cacheKey = createCacheKey(key);
+        List<byte[]> values;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            values = connection.stringCommands().mGet(serializeCacheKey(cacheKey), serializeCacheKey(versionKey(cacheKey)));
+        }
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return toWrapper(values.get(0), values.size() > 1 ? values.get(1) : null);
+    }
+
+    @Override
+    public List<ValueWrapper> getAll(List<?> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        // value, sidecar, value, sidecar, ... in one MGET
+        byte[][] cacheKeys = new byte[keys.size() * 2][];
+        for (int i = 0; i < keys.size(); i++) {
+            String cacheKey = createCacheKey(keys.get(i));
+            cacheKeys[2 * i] = serializeCacheKey(cacheKey);
+            cacheKeys[2 * i + 1] = serializeCacheKey(versionKey(cacheKey));
+        }
+        List<byte[]> values;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            values = connection.stringCommands().mGet(cacheKeys);
+        }
+
+        List<ValueWrapper> wrappers = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            wrappers.add(values != null && values.size() == cacheKeys.length
+                    ? toWrapper(values.get(2 * i), values.get(2 * i + 1))
+                    : null);
+        }
+        return wrappers;
+    }
+
+    private ValueWrapper toWrapper(byte[] rawValue, byte[] rawMetadata) {
+        if (rawValue == null) {
+            return null;
+        }
+        Object value = fromStoreValue(deserializeCacheValue(rawValue));
+        String[] metadata = rawMetadata != null
+                ? new String(rawMetadata, StandardCharsets.UTF_8).split(":")
+                : new String[0];
+        if (metadata.length < 3) {
+            // Non-versioned value, or written before compute time was recorded
+            return new SimpleValueWrapper(value);
+        }
+        return new CacheEntry(value, Long.parseLong(metadata[1]), Long.parseLong(metadata[2]));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        put(key, value, 0);
+    }
+
+    @Override
+    public CacheEntry put(Object key, Object value, long computeMs) {
+        if (!(value instanceof Product product) || product.getVersion() == null) {
+            super.put(key, value);
+            return new CacheEntry(value, computeMs, 0);
+        }
+
+        // The TTL function may add jitter, so compute it once and use it for both keys
+        Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+        long ttlMs = ttl != null ? ttl.toMillis() : 0;
+        long expiresAtMs = ttlMs > 0 ? System.currentTimeMillis() + ttlMs : 0;
+        String cacheKey = createCacheKey(key);
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(PUT_SCRIPT, ReturnType.INTEGER, 2,
+                    serializeCacheKey(cacheKey),
+                    serializeCacheKey(versionKey(cacheKey)),
+                    serializeCacheValue(toStoreValue(value)),
+                    bytes(product.getVersion() + ":" + computeMs + ":" + expiresAtMs),
+                    bytes(ttlMs));
+        }
+        return new CacheEntry(value, computeMs, expiresAtMs);
+    }
+
+    @Override
+    public Map<Object, CacheEntry> putAll(Map<?, ?> values, long computeMs) {
+        Map<Object, CacheEntry> entries = new LinkedHashMap<>();
+        Map<Object, Object> unversioned = new LinkedHashMap<>();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            try {
+                for (Map.Entry<?, ?> entry : values.entrySet()) {
+                    Object key = entry.getKey();
+                    Object value = entry.getValue();
+                    if (!(value instanceof Product product) || product.getVersion() == null) {
+                        unversioned.put(key, value);
+                        continue;
+                    }
+                    Duration ttl = getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+                    long ttlMs = ttl != null ? ttl.toMillis() : 0;
+                    long expiresAtMs = ttlMs > 0 ? System.currentTimeMillis() + ttlMs : 0;
+                    String cacheKey = createCacheKey(key);
+                    connection.scriptingCommands().eval(PUT_SCRIPT, ReturnType.INTEGER, 2,
+                            serializeCacheKey(cacheKey),
+                            serializeCacheKey(versionKey(cacheKey)),
+                            serializeCacheValue(toStoreValue(value)),
+                            bytes(product.getVersion() + ":" + computeMs + ":" + expiresAtMs),
+                            bytes(ttlMs));
+                    entries.put(key, new CacheEntry(value, computeMs, expiresAtMs));
+                }
+            } finally {
+                connection.closePipeline();
+            }
+        }
+        unversioned.forEach((key, value) -> entries.put(key, put(key, value, computeMs)));
+        return entries;
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = createCacheKey(key);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(serializeCacheKey(cacheKey), serializeCacheKey(versionKey(cacheKey)));
+        }
+    }
+
+    @Override
+    public boolean evictIfNotNewer(Object key, Integer version) {
+        if (version == null) {
+            evict(key);
+            return true;
+        }
+
+        String cacheKey = createCacheKey(key);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long result = connection.scriptingCommands().eval(EVICT_IF_NOT_NEWER_SCRIPT, ReturnType.INTEGER, 2,
+                    serializeCacheKey(cacheKey),
+                    serializeCacheKey(versionKey(cacheKey)),
+                    bytes(version));
+            return result == null || result == 1L;
+        }
+    }
+
+    @Override
+    public List<Object> evictAllIfNotNewer(Map<?, Integer> versions) {
+        if (versions.isEmpty()) {
+            return List.of();
+        }
+        List<Object> keys = new ArrayList<>(versions.keySet());
+        byte[][] keysAndArgs = new byte[keys.size() * 3][];
+        for (int i = 0; i < keys.size(); i++) {
+            String cacheKey = createCacheKey(keys.get(i));
+            Integer version = versions.get(keys.get(i));
+            keysAndArgs[2 * i] = serializeCacheKey(cacheKey);
+            keysAndArgs[2 * i + 1] = serializeCacheKey(versionKey(cacheKey));
+            keysAndArgs[2 * keys.size() + i] = version != null ? bytes(version) : new byte[0];
+        }
+
+        // One round trip for the whole batch
+        List<Long> keptIndexes;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            keptIndexes = connection.scriptingCommands().eval(EVICT_ALL_IF_NOT_NEWER_SCRIPT, ReturnType.MULTI,
+                    keys.size() * 2, keysAndArgs);
+        }
+        List<Object> kept = new ArrayList<>();
+        if (keptIndexes != null) {
+            for (Long index : keptIndexes) {
+                kept.add(keys.get(index.intValue() - 1));
+            }
+        }
+        return kept;
+    }
+
+    private static String versionKey(String cacheKey) {
+        return cacheKey + "::v";
+    }
+
+    private static byte[] bytes(Object value) {
+        return String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package com.eds.catalog.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+/**
+ * RedisCacheManager that hands out {@link VersionedRedisCache}s.
+ */
+public class VersionedRedisCacheManager extends RedisCacheManager {
+    private final RedisConnectionFactory connectionFactory;
+
+    public VersionedRedisCacheManager(RedisConnectionFactory connectionFactory,
+                                      RedisCacheConfiguration defaultCacheConfiguration) {
+        super(RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory), defaultCacheConfiguration);
+        this.connectionFactory = connectionFactory;
+    }
+
+    @Override
+    protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfiguration) {
+        return new VersionedRedisCache(name, getCacheWriter(),
+                cacheConfiguration != null ? cacheConfiguration : getDefaultCacheConfiguration(),
+                connectionFactory);
+    }
+}
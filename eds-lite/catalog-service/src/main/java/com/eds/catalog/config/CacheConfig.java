@@ -1,17 +1,24 @@
 package com.eds.catalog.config;
 
+import com.eds.catalog.cache.ProductBinarySerializer;
+import com.eds.catalog.cache.TwoTierCacheManager;
+import com.eds.catalog.cache.VersionedRedisCacheManager;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Configuration
 public class CacheConfig {
@@ -19,23 +26,70 @@ public class CacheConfig {
     @Value("${cache.mode:ttl_invalidate}")
     private String cacheMode;
 
+    @Value("${cache.ttl-jitter:0.0}")
+    private double ttlJitter;
+
+    @Value("${cache.serializer:jdk}")
+    private String cacheSerializer;
+
+    @Value("${cache.l1.enabled:true}")
+    private boolean l1Enabled;
+
+    @Value("${cache.l1.maximum-size:10000}")
+    private long l1MaximumSize;
+
+    @Value("${cache.l1.ttl-ms:30000}")
+    private long l1TtlMs;
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, MeterRegistry meterRegistry) {
         if ("none".equals(cacheMode)) {
             return new org.springframework.cache.support.NoOpCacheManager();
         }
 
-        // Use JDK serialization for reliability with complex objects
-        // This handles Instant, BigDecimal, and MongoDB annotations properly
         RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-                .entryTtl(Duration.ofMinutes(5))
+                .entryTtl(ttlFunction(Duration.ofMinutes(5)))
                 .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new JdkSerializationRedisSerializer()))
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(valueSerializer()))
                 .disableCachingNullValues();
 
-        return RedisCacheManager.builder(connectionFactory)
-                .cacheDefaults(config)
-                .build();
+        // Stores each Product's version next to the value so the invalidation
+        // consumer can compare-and-delete instead of evicting unconditionally
+        RedisCacheManager redisCacheManager = new VersionedRedisCacheManager(connectionFactory, config);
+
+        if (!l1Enabled) {
+            return redisCacheManager;
+        }
+        redisCacheManager.afterPropertiesSet();
+
+        // In-process L1 in front of Redis so hot keys skip the network round trip.
+        // The L1 TTL is kept well below the Redis TTL to bound staleness on instances
+        // that miss an invalidation.
+        System.out.println("CacheConfig: L1 near cache enabled (maxSize=" + l1MaximumSize + ", ttl=" + l1TtlMs + "ms)");
+        return new TwoTierCacheManager(redisCacheManager, l1MaximumSize, Duration.ofMillis(l1TtlMs), meterRegistry);
     }
-}
 
+    private RedisSerializer<Object> valueSerializer() {
+        if ("binary".equals(cacheSerializer)) {
+            // Compact encoding for Products; still reads JDK-serialized entries written
+            // before the switch, so the two can coexist until old entries expire
+            System.out.println("CacheConfig: using compact binary serializer for cached products");
+            return new ProductBinarySerializer();
+        }
+        // Use JDK serialization for reliability with complex objects
+        // This handles Instant, BigDecimal, and MongoDB annotations properly
+        return new JdkSerializationRedisSerializer();
+    }
+
+    private RedisCacheWriter.TtlFunction ttlFunction(Duration baseTtl) {
+        if (ttlJitter <= 0) {
+            return RedisCacheWriter.TtlFunction.just(baseTtl);
+        }
+        // Spread expiries by +/- ttlJitter so entries warmed together (load test,
+        // deploy) don't all expire in the same second
+        long baseMs = baseTtl.toMillis();
+        long spreadMs = (long) (baseMs * Math.min(ttlJitter, 0.9));
+        return (key, value) -> Duration.ofMillis(baseMs - spreadMs
+                + ThreadLocalRandom.current().nextLong(2 * spreadMs + 1));
+    }
+}
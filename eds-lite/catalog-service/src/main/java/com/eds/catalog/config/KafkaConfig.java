@@ -10,6 +10,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
+import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
@@ -25,6 +26,13 @@ public class KafkaConfig {
     @Value("${cache.mode:ttl_invalidate}")
     private String cacheMode;
 
+    // Consumers beyond the topic's partition count sit idle, so keep this <= partitions
+    @Value("${cache.invalidation.consumer.concurrency:1}")
+    private int invalidationConcurrency;
+
+    @Value("${cache.invalidation.consumer.max-poll-records:500}")
+    private int invalidationMaxPollRecords;
+
     @Bean
     public ProducerFactory<String, CacheInvalidationEvent> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
@@ -86,5 +94,23 @@ public class KafkaConfig {
         factory.setConsumerFactory(consumerFactory());
         return factory;
     }
+
+    /**
+     * Batch listener factory for cache invalidations: each poll (up to max-poll-records
+     * events) is handed to the listener as one list and the offsets are committed once
+     * the listener has returned.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, CacheInvalidationEvent> batchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, CacheInvalidationEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(Math.max(1, invalidationConcurrency));
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.BATCH);
+        factory.getContainerProperties().getKafkaConsumerProperties()
+                .setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(invalidationMaxPollRecords));
+        return factory;
+    }
 }
 
@@ -0,0 +1,19 @@
+package com.eds.catalog.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+@Configuration
+public class MongoConfig {
+
+    // Transactions need a replica set (Atlas is one); a standalone mongod rejects them,
+    // so the manager only exists when the outbox is asked to use them
+    @Bean
+    @ConditionalOnProperty(name = "cache.invalidation.outbox.transactional", havingValue = "true")
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
@@ -1,7 +1,11 @@
 package com.eds.catalog.config;
 
+import com.eds.catalog.cache.RedisTrackingInvalidator;
+import io.lettuce.core.RedisURI;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
@@ -55,5 +59,22 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Optional L1 invalidation transport: Redis pushes productById key changes over a
+     * RESP3 connection with client tracking, so near caches don't wait for Kafka.
+     * Needs Redis 6+.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "cache.l1.tracking.enabled", havingValue = "true")
+    public RedisTrackingInvalidator redisTrackingInvalidator(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        RedisURI.Builder uri = RedisURI.Builder.redis(redisHost, redisPort)
+                .withSsl(redisSsl)
+                .withClientName("catalog-l1-tracking");
+        if (redisPassword != null && !redisPassword.isEmpty()) {
+            uri.withPassword(redisPassword.toCharArray());
+        }
+        return new RedisTrackingInvalidator(uri.build(), cacheManager, "productById", meterRegistry);
+    }
 }
 
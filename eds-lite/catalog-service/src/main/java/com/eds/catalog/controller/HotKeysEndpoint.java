@@ -0,0 +1,53 @@
+package com.eds.catalog.controller;
+
+import com.eds.catalog.cache.TwoTierCache;
+import com.eds.catalog.service.HotKeyTracker;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Actuator endpoint (/actuator/hotkeys) listing the product ids with the highest
+ * estimated read counts, whether each counts as hot and whether it is pinned here.
+ */
+@Component
+@Endpoint(id = "hotkeys")
+public class HotKeysEndpoint {
+
+    private final HotKeyTracker hotKeyTracker;
+    private final CacheManager cacheManager;
+
+    public HotKeysEndpoint(HotKeyTracker hotKeyTracker, CacheManager cacheManager) {
+        this.hotKeyTracker = hotKeyTracker;
+        this.cacheManager = cacheManager;
+    }
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        Cache cache = cacheManager.getCache("productById");
+        Set<Object> pinned = cache instanceof TwoTierCache nearCache ? nearCache.pinnedKeys() : Set.of();
+
+        List<Map<String, Object>> topK = new ArrayList<>();
+        for (HotKeyTracker.HotKey hotKey : hotKeyTracker.topK()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("key", hotKey.key());
+            entry.put("estimate", hotKey.estimate());
+            entry.put("hot", hotKey.hot());
+            entry.put("pinned", pinned.contains(hotKey.key()));
+            topK.add(entry);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("enabled", hotKeyTracker.isEnabled());
+        response.put("topK", topK);
+        return response;
+    }
+}
@@ -1,25 +1,66 @@
 package com.eds.catalog.controller;
 
 import com.eds.catalog.model.Product;
+import com.eds.catalog.model.CategoryCount;
+import com.eds.catalog.model.ProductBatchResponse;
 import com.eds.catalog.model.ProductCreateRequest;
 import com.eds.catalog.model.ProductUpdateRequest;
 import com.eds.catalog.model.ProductSearchRequest;
 import com.eds.catalog.model.ProductSearchResponse;
+import com.eds.catalog.service.CategoryCatalog;
 import com.eds.catalog.service.ProductService;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
+    private static final int MAX_BATCH_IDS = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final ProductService productService;
 
     public ProductController(ProductService productService) {
         this.productService = productService;
     }
 
+    /**
+     * Bulk lookup for carts and orders: GET /products/batch?ids=a,b,c or POST with the
+     * ids as a JSON array (for long lists). Products are returned in request order.
+     */
+    @RequestMapping(value = "/batch", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<?> getProductsBatch(
+            @RequestParam(required = false) List<String> ids,
+            @RequestBody(required = false) List<String> body) {
+        List<String> requested = new ArrayList<>();
+        if (ids != null) requested.addAll(ids);
+        if (body != null) requested.addAll(body);
+        requested.removeIf(id -> id == null || id.isBlank());
+
+        if (requested.isEmpty()) {
+            return ResponseEntity.badRequest().body("At least one product id is required");
+        }
+        if (requested.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().body("At most " + MAX_BATCH_IDS + " product ids per request");
+        }
+
+        try {
+            ProductBatchResponse response = productService.getProductsByIds(requested);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            System.err.println("Error fetching product batch: " + e.getMessage());
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error fetching products: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<?> getProduct(@PathVariable String id) {
         try {
@@ -35,8 +76,13 @@ public class ProductController {
         }
     }
 
+    /**
+     * Page/size pagination by default. Pass {@code cursor} (empty for the first page,
+     * then the previous response's nextCursor) for keyset pagination, which stays
+     * fast on deep pages. {@code total} is exact, estimate or none.
+     */
     @GetMapping
-    public ResponseEntity<ProductSearchResponse> searchProducts(
+    public ResponseEntity<?> searchProducts(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) String minPrice,
@@ -45,8 +91,15 @@ public class ProductController {
             @RequestParam(defaultValue = "name") String sortBy,
             @RequestParam(defaultValue = "asc") String sortDirection,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String total) {
         
+        // Keyset pages fetch size + 1 rows; size < 1 would break that, and Mongo reads
+        // a non-positive limit as no limit at all
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
         ProductSearchRequest request = new ProductSearchRequest();
         request.setSearch(search);
         request.setCategory(category);
@@ -57,18 +110,50 @@ public class ProductController {
         request.setSortDirection(sortDirection);
         request.setPage(page);
         request.setSize(size);
+        request.setCursor(cursor);
+        request.setTotal(total);
         
-        return ResponseEntity.ok(productService.searchProducts(request));
+        if (total != null && !List.of("exact", "estimate", "none").contains(total)) {
+            return ResponseEntity.badRequest().body("total must be exact, estimate or none");
+        }
+        try {
+            return ResponseEntity.ok(productService.searchProducts(request));
+        } catch (IllegalArgumentException e) {
+            // Bad or mismatched cursor
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
     }
 
     @GetMapping("/categories")
-    public ResponseEntity<List<String>> getCategories() {
-        return ResponseEntity.ok(productService.getCategories());
+    public ResponseEntity<List<String>> getCategories(WebRequest webRequest) {
+        CategoryCatalog.Snapshot snapshot = productService.getCategories();
+        if (webRequest.checkNotModified(snapshot.etag())) {
+            return null; // 304
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.etag())
+                .body(snapshot.names());
+    }
+
+    @GetMapping("/categories/counts")
+    public ResponseEntity<List<CategoryCount>> getCategoryCounts(WebRequest webRequest) {
+        CategoryCatalog.Snapshot snapshot = productService.getCategories();
+        if (webRequest.checkNotModified(snapshot.etag())) {
+            return null; // 304
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(snapshot.etag())
+                .body(snapshot.categories());
     }
 
+    // The body is already serialized JSON; it is written out as is
     @GetMapping("/featured")
-    public ResponseEntity<List<Product>> getFeaturedProducts() {
-        return ResponseEntity.ok(productService.getFeaturedProducts());
+    public ResponseEntity<byte[]> getFeaturedProducts() {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(productService.getFeaturedProductsJson());
     }
 
     @PostMapping("/{id}")
@@ -93,6 +178,10 @@ public class ProductController {
             Product updated = productService.updateProduct(id, request);
             System.out.println("Update successful! Product version: " + updated.getVersion());
             return ResponseEntity.ok(updated);
+        } catch (OptimisticLockingFailureException e) {
+            // expectedVersion no longer matches (or a write conflict outlasted the retries)
+            System.err.println("Update conflict for product " + id + ": " + e.getMessage());
+            return ResponseEntity.status(409).body("Error: " + e.getMessage());
         } catch (RuntimeException e) {
             // Log the error for debugging
             System.err.println("=== UPDATE FAILED ===");
@@ -177,6 +266,9 @@ public class ProductController {
                 System.out.println("Product not found: " + id);
                 return ResponseEntity.notFound().build();
             }
+        } catch (OptimisticLockingFailureException e) {
+            System.err.println("Delete conflict for product " + id + ": " + e.getMessage());
+            return ResponseEntity.status(409).body("Error: " + e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("=== DELETE FAILED ===");
             System.err.println("Product ID: " + id);
@@ -1,16 +1,17 @@
 package com.eds.catalog.controller;
 
 import com.eds.catalog.model.Review;
+import com.eds.catalog.model.ReviewPage;
 import com.eds.catalog.model.ReviewRequest;
 import com.eds.catalog.service.ReviewService;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/products/{productId}/reviews")
 public class ReviewController {
+    private static final int MAX_PAGE_SIZE = 100;
     
     private final ReviewService reviewService;
 
@@ -18,11 +19,23 @@ public class ReviewController {
         this.reviewService = reviewService;
     }
 
+    /**
+     * Newest reviews first. The first page includes the summary (count, average and a
+     * histogram of stars); pass nextCursor back as ?cursor= for the following page.
+     */
     @GetMapping
-    public ResponseEntity<List<Review>> getProductReviews(@PathVariable String productId) {
+    public ResponseEntity<?> getProductReviews(
+            @PathVariable String productId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().body("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
         try {
-            List<Review> reviews = reviewService.getProductReviews(productId);
-            return ResponseEntity.ok(reviews);
+            ReviewPage page = reviewService.getProductReviews(productId, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             System.err.println("Error fetching reviews for product " + productId + ": " + e.getMessage());
             return ResponseEntity.internalServerError().build();
@@ -54,6 +67,10 @@ public class ReviewController {
             System.out.println("Review added successfully: " + review.getId());
             return ResponseEntity.ok(review);
             
+        } catch (OptimisticLockingFailureException e) {
+            // Write conflicts with other reviews of the product outlasted the retries
+            System.err.println("Review conflict for product " + productId + ": " + e.getMessage());
+            return ResponseEntity.status(409).body(e.getMessage());
         } catch (RuntimeException e) {
             System.err.println("Review error: " + e.getMessage());
             return ResponseEntity.badRequest().body(e.getMessage());
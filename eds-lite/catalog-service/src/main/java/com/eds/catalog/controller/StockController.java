@@ -0,0 +1,90 @@
+package com.eds.catalog.controller;
+
+import com.eds.catalog.model.StockReservation;
+import com.eds.catalog.model.StockReservationRequest;
+import com.eds.catalog.service.StockReservationService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Reserve / release / commit stock for checkout. A reservation holds units until it is
+ * committed (sold) or released; uncommitted holds expire on their own.
+ */
+@RestController
+@RequestMapping("/products/{productId}/stock")
+public class StockController {
+
+    private final StockReservationService stockReservationService;
+
+    public StockController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    @GetMapping
+    public ResponseEntity<?> getAvailable(@PathVariable String productId) {
+        if (!stockReservationService.isActive()) {
+            return ResponseEntity.status(503).body("Stock reservations are not available");
+        }
+        try {
+            Long available = stockReservationService.available(productId);
+            return ResponseEntity.ok(Map.of("productId", productId, "available", available));
+        } catch (RuntimeException e) {
+            return errorResponse(productId, e);
+        }
+    }
+
+    @PostMapping("/reservations")
+    public ResponseEntity<?> reserve(
+            @PathVariable String productId,
+            @RequestBody StockReservationRequest request) {
+        if (!stockReservationService.isActive()) {
+            return ResponseEntity.status(503).body("Stock reservations are not available");
+        }
+        if (request == null || request.getQuantity() == null) {
+            return ResponseEntity.badRequest().body("quantity is required");
+        }
+        try {
+            StockReservation reservation = stockReservationService.reserve(
+                    productId, request.getQuantity(), request.getReservationId());
+            return ResponseEntity.status(201).body(reservation);
+        } catch (RuntimeException e) {
+            return errorResponse(productId, e);
+        }
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<?> release(@PathVariable String productId, @PathVariable String reservationId) {
+        if (!stockReservationService.isActive()) {
+            return ResponseEntity.status(503).body("Stock reservations are not available");
+        }
+        return stockReservationService.release(productId, reservationId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @PostMapping("/reservations/{reservationId}/commit")
+    public ResponseEntity<?> commit(@PathVariable String productId, @PathVariable String reservationId) {
+        if (!stockReservationService.isActive()) {
+            return ResponseEntity.status(503).body("Stock reservations are not available");
+        }
+        return stockReservationService.commit(productId, reservationId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    private static ResponseEntity<?> errorResponse(String productId, RuntimeException e) {
+        if (e instanceof IllegalStateException) {
+            return ResponseEntity.status(409).body(e.getMessage());
+        }
+        if (e instanceof IllegalArgumentException) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        if (e.getMessage() != null && e.getMessage().contains("not found")) {
+            return ResponseEntity.notFound().build();
+        }
+        System.err.println("Stock error for product " + productId + ": " + e.getMessage());
+        return ResponseEntity.internalServerError().body("Stock operation failed");
+    }
+}
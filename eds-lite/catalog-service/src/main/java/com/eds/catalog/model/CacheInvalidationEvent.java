@@ -5,6 +5,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 public class CacheInvalidationEvent {
     private String ns;
@@ -12,6 +13,12 @@ public class CacheInvalidationEvent {
     private Integer version;
     private Instant ts;
     private String cause;
+    // Per-key versions for batched events; null for single-key events, which use version
+    private Map<String, Integer> versions;
+
+    public CacheInvalidationEvent(String ns, List<String> keys, Integer version, Instant ts, String cause) {
+        this(ns, keys, version, ts, cause, null);
+    }
 
     @JsonCreator
     public CacheInvalidationEvent(
@@ -19,12 +26,14 @@ public class CacheInvalidationEvent {
             @JsonProperty("keys") List<String> keys,
             @JsonProperty("version") Integer version,
             @JsonProperty("ts") Instant ts,
-            @JsonProperty("cause") String cause) {
+            @JsonProperty("cause") String cause,
+            @JsonProperty("versions") Map<String, Integer> versions) {
         this.ns = ns;
         this.keys = keys;
         this.version = version;
         this.ts = ts;
         this.cause = cause;
+        this.versions = versions;
     }
 
     public String getNs() {
@@ -66,5 +75,23 @@ public class CacheInvalidationEvent {
     public void setCause(String cause) {
         this.cause = cause;
     }
-}
 
+    public Map<String, Integer> getVersions() {
+        return versions;
+    }
+
+    public void setVersions(Map<String, Integer> versions) {
+        this.versions = versions;
+    }
+
+    /**
+     * Version for one of the event's keys: the per-key version of a batched event,
+     * otherwise the event-wide version.
+     */
+    public Integer versionOf(String key) {
+        if (versions != null) {
+            return versions.get(key);
+        }
+        return version;
+    }
+}
@@ -0,0 +1,53 @@
+package com.eds.catalog.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One pending cache invalidation, written alongside the change it describes and
+ * deleted by the relay once Kafka has acknowledged it. The ObjectId gives the order.
+ */
+@Document(collection = "outbox")
+public class OutboxEvent {
+    @Id
+    private String id;
+    // "product" for a productById key, otherwise the namespace to drop
+    private String ns;
+    private String key;
+    // Version just written; null for a delete or a namespace
+    private Integer version;
+    private String cause;
+    private Instant createdAt;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(String ns, String key, Integer version, String cause, Instant createdAt) {
+        this.ns = ns;
+        this.key = key;
+        this.version = version;
+        this.cause = cause;
+        this.createdAt = createdAt;
+    }
+
+    // Getters and setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getNs() { return ns; }
+    public void setNs(String ns) { this.ns = ns; }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+
+    public Integer getVersion() { return version; }
+    public void setVersion(Integer version) { this.version = version; }
+
+    public String getCause() { return cause; }
+    public void setCause(String cause) { this.cause = cause; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+}
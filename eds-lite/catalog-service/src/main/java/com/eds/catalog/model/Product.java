@@ -24,6 +24,8 @@ public class Product implements Serializable {
     private boolean featured;
     private Double rating;
     private Integer reviewCount;
+    // Sum of all review stars; rating is derived from ratingSum / reviewCount
+    private Long ratingSum;
     @Version
     private Integer version;
     private Instant updatedAt;
@@ -41,6 +43,24 @@ public class Product implements Serializable {
         this.updatedAt = Instant.now();
     }
 
+    // Shallow copy, e.g. to adjust a cached instance without touching the cache's copy
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.price = other.price;
+        this.stock = other.stock;
+        this.category = other.category;
+        this.tags = other.tags;
+        this.images = other.images;
+        this.featured = other.featured;
+        this.rating = other.rating;
+        this.reviewCount = other.reviewCount;
+        this.ratingSum = other.ratingSum;
+        this.version = other.version;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Getters and setters
     public String getId() {
         return id;
@@ -145,5 +165,13 @@ public class Product implements Serializable {
     public void setReviewCount(Integer reviewCount) {
         this.reviewCount = reviewCount;
     }
+
+    public Long getRatingSum() {
+        return ratingSum;
+    }
+
+    public void setRatingSum(Long ratingSum) {
+        this.ratingSum = ratingSum;
+    }
 }
 
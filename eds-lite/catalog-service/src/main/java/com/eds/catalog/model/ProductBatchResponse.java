@@ -0,0 +1,20 @@
+package com.eds.catalog.model;
+
+import java.util.List;
+
+public class ProductBatchResponse {
+    private List<Product> products;
+    private List<String> notFound;
+
+    public ProductBatchResponse(List<Product> products, List<String> notFound) {
+        this.products = products;
+        this.notFound = notFound;
+    }
+
+    // Getters and setters
+    public List<Product> getProducts() { return products; }
+    public void setProducts(List<Product> products) { this.products = products; }
+
+    public List<String> getNotFound() { return notFound; }
+    public void setNotFound(List<String> notFound) { this.notFound = notFound; }
+}
@@ -12,6 +12,11 @@ public class ProductSearchRequest {
     private String sortDirection = "asc";
     private int page = 0;
     private int size = 20;
+    // Keyset pagination: null = page/size, "" = first page, otherwise the nextCursor
+    // of the previous response
+    private String cursor;
+    // exact, estimate or none; null = the configured default
+    private String total;
 
     // Getters and setters
     public String getSearch() { return search; }
@@ -40,4 +45,10 @@ public class ProductSearchRequest {
 
     public int getSize() { return size; }
     public void setSize(int size) { this.size = size; }
+
+    public String getCursor() { return cursor; }
+    public void setCursor(String cursor) { this.cursor = cursor; }
+
+    public String getTotal() { return total; }
+    public void setTotal(String total) { this.total = total; }
 }
\ No newline at end of file
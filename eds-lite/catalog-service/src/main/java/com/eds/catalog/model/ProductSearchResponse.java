@@ -1,13 +1,19 @@
 package com.eds.catalog.model;
 
+import java.io.Serializable;
 import java.util.List;
 
-public class ProductSearchResponse {
+public class ProductSearchResponse implements Serializable {
+    private static final long serialVersionUID = 1L;
     private List<Product> products;
     private long totalElements;
     private int totalPages;
     private int currentPage;
     private int size;
+    // Set in cursor mode while more results follow
+    private String nextCursor;
+    // false when totalElements is an estimate or was not computed (-1)
+    private boolean totalExact = true;
 
     public ProductSearchResponse(List<Product> products, long totalElements, int totalPages, int currentPage, int size) {
         this.products = products;
@@ -17,6 +23,13 @@ public class ProductSearchResponse {
         this.size = size;
     }
 
+    public ProductSearchResponse(List<Product> products, long totalElements, int totalPages, int currentPage, int size,
+                                 String nextCursor, boolean totalExact) {
+        this(products, totalElements, totalPages, currentPage, size);
+        this.nextCursor = nextCursor;
+        this.totalExact = totalExact;
+    }
+
     // Getters and setters
     public List<Product> getProducts() { return products; }
     public void setProducts(List<Product> products) { this.products = products; }
@@ -32,4 +45,10 @@ public class ProductSearchResponse {
 
     public int getSize() { return size; }
     public void setSize(int size) { this.size = size; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public boolean isTotalExact() { return totalExact; }
+    public void setTotalExact(boolean totalExact) { this.totalExact = totalExact; }
 }
\ No newline at end of file
@@ -9,6 +9,8 @@ public class ProductUpdateRequest {
     private Integer stock;
     private String category;
     private java.util.List<String> images;
+    // Optional: only apply the update if the product is still at this version
+    private Integer expectedVersion;
 
     // No-arg constructor required for Jackson deserialization
     public ProductUpdateRequest() {
@@ -61,5 +63,12 @@ public class ProductUpdateRequest {
     public void setImages(java.util.List<String> images) {
         this.images = images;
     }
-}
 
+    public Integer getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public void setExpectedVersion(Integer expectedVersion) {
+        this.expectedVersion = expectedVersion;
+    }
+}
@@ -3,10 +3,12 @@ package com.eds.catalog.model;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
+import java.io.Serializable;
 import java.time.Instant;
 
 @Document(collection = "reviews")
-public class Review {
+public class Review implements Serializable {
+    private static final long serialVersionUID = 1L;
     @Id
     private String id;
     private String productId;
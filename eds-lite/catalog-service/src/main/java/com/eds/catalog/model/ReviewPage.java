@@ -0,0 +1,29 @@
+package com.eds.catalog.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class ReviewPage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private List<Review> reviews;
+    // Set while more reviews follow; pass back as ?cursor= for the next page
+    private String nextCursor;
+    // Only on the first page
+    private ReviewSummary summary;
+
+    public ReviewPage(List<Review> reviews, String nextCursor, ReviewSummary summary) {
+        this.reviews = reviews;
+        this.nextCursor = nextCursor;
+        this.summary = summary;
+    }
+
+    // Getters and setters
+    public List<Review> getReviews() { return reviews; }
+    public void setReviews(List<Review> reviews) { this.reviews = reviews; }
+
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+
+    public ReviewSummary getSummary() { return summary; }
+    public void setSummary(ReviewSummary summary) { this.summary = summary; }
+}
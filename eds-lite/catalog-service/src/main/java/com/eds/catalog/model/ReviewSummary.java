@@ -0,0 +1,28 @@
+package com.eds.catalog.model;
+
+import java.io.Serializable;
+import java.util.Map;
+
+public class ReviewSummary implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private long count;
+    private double average;
+    // Stars (1-5) to number of reviews; every star is present
+    private Map<Integer, Long> histogram;
+
+    public ReviewSummary(long count, double average, Map<Integer, Long> histogram) {
+        this.count = count;
+        this.average = average;
+        this.histogram = histogram;
+    }
+
+    // Getters and setters
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public double getAverage() { return average; }
+    public void setAverage(double average) { this.average = average; }
+
+    public Map<Integer, Long> getHistogram() { return histogram; }
+    public void setHistogram(Map<Integer, Long> histogram) { this.histogram = histogram; }
+}
@@ -0,0 +1,37 @@
+package com.eds.catalog.model;
+
+import java.time.Instant;
+
+public class StockReservation {
+    private String reservationId;
+    private String productId;
+    private int quantity;
+    // Units still available to reserve after this call
+    private long available;
+    // Held units go back to stock if not committed by then
+    private Instant expiresAt;
+
+    public StockReservation(String reservationId, String productId, int quantity, long available, Instant expiresAt) {
+        this.reservationId = reservationId;
+        this.productId = productId;
+        this.quantity = quantity;
+        this.available = available;
+        this.expiresAt = expiresAt;
+    }
+
+    // Getters and setters
+    public String getReservationId() { return reservationId; }
+    public void setReservationId(String reservationId) { this.reservationId = reservationId; }
+
+    public String getProductId() { return productId; }
+    public void setProductId(String productId) { this.productId = productId; }
+
+    public int getQuantity() { return quantity; }
+    public void setQuantity(int quantity) { this.quantity = quantity; }
+
+    public long getAvailable() { return available; }
+    public void setAvailable(long available) { this.available = available; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
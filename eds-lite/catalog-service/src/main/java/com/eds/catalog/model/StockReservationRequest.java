@@ -0,0 +1,17 @@
+package com.eds.catalog.model;
+
+public class StockReservationRequest {
+    private Integer quantity;
+    // Optional client-chosen id; retrying with the same id does not reserve twice
+    private String reservationId;
+
+    public StockReservationRequest() {
+    }
+
+    // Getters and setters
+    public Integer getQuantity() { return quantity; }
+    public void setQuantity(Integer quantity) { this.quantity = quantity; }
+
+    public String getReservationId() { return reservationId; }
+    public void setReservationId(String reservationId) { this.reservationId = reservationId; }
+}
@@ -0,0 +1,109 @@
+package com.eds.catalog.repository;
+
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Change stream over the products and reviews collections, plus the state its single
+ * reader keeps in change_stream_state: the lease and the resume token, in one document
+ * so a reader that lost the lease cannot overwrite the new owner's token.
+ */
+@Repository
+public class CatalogChangeStream {
+    private static final String STATE = "change_stream_state";
+    private static final String STREAM = "catalog-invalidation";
+
+    private final MongoTemplate mongoTemplate;
+
+    public CatalogChangeStream(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Opens the stream after {@code resumeToken}, or at the current time if it is null.
+     * Only the fields the invalidator reads are kept; the post-image lookup supplies the
+     * version of updated products.
+     */
+    public MongoChangeStreamCursor<ChangeStreamDocument<Document>> open(BsonDocument resumeToken, int batchSize,
+                                                                      long maxAwaitMs) {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("ns.coll", List.of("products", "reviews"))),
+                Aggregates.project(Projections.include("operationType", "ns", "documentKey", "clusterTime",
+                        "wallTime", "fullDocument.version", "fullDocument.featured", "fullDocument.productId",
+                        "updateDescription.updatedFields.featured")));
+        ChangeStreamIterable<Document> stream = mongoTemplate.getDb().watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .batchSize(batchSize)
+                .maxAwaitTime(maxAwaitMs, TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        return stream.cursor();
+    }
+
+    public BsonDocument loadResumeToken() {
+        BsonDocument state = state().withDocumentClass(BsonDocument.class)
+                .find(Filters.eq("_id", STREAM)).first();
+        return state != null && state.isDocument("token") ? state.getDocument("token") : null;
+    }
+
+    /**
+     * Stores {@code token} if {@code owner} still holds the lease; false if it does not.
+     */
+    public boolean saveResumeToken(String owner, BsonDocument token) {
+        return state().updateOne(Filters.and(Filters.eq("_id", STREAM), Filters.eq("owner", owner)),
+                Updates.combine(Updates.set("token", token), Updates.set("tokenSavedAt", new Date())))
+                .getMatchedCount() > 0;
+    }
+
+    /**
+     * Forgets the token, so the next {@link #open} starts from now.
+     */
+    public void clearResumeToken(String owner) {
+        state().updateOne(Filters.and(Filters.eq("_id", STREAM), Filters.eq("owner", owner)),
+                Updates.unset("token"));
+    }
+
+    /**
+     * Takes or renews the reader lease for {@code leaseMs}. True if {@code owner} holds it
+     * afterwards; false while another owner's lease has not expired.
+     */
+    public boolean tryAcquireLease(String owner, long leaseMs) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is(STREAM)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(now)));
+        Update update = Update.update("owner", owner).set("expiresAt", now.plusMillis(leaseMs));
+        try {
+            // No match means someone else holds it: the upsert then collides on _id
+            mongoTemplate.upsert(query, update, STATE);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    private MongoCollection<Document> state() {
+        return mongoTemplate.getCollection(STATE);
+    }
+}
@@ -0,0 +1,15 @@
+package com.eds.catalog.repository;
+
+import com.eds.catalog.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxRepository extends MongoRepository<OutboxEvent, String>, OutboxRepositoryCustom {
+
+    // Oldest first; ObjectIds increase with insertion time
+    List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,50 @@
+package com.eds.catalog.repository;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.TextIndexDefinition;
+
+/**
+ * Indexes behind product search and listings. Created at startup (Spring Boot does
+ * not auto-create indexes) and by the search benchmark.
+ */
+public final class ProductIndexes {
+    public static final String TEXT_INDEX = "product_text";
+
+    private ProductIndexes() {
+    }
+
+    public static void ensureIndexes(MongoTemplate mongoTemplate, String collection) {
+        IndexOperations indexOps = mongoTemplate.indexOps(collection);
+
+        // Weighted text index for the search box; name matches rank above tags and
+        // description matches
+        try {
+            indexOps.ensureIndex(new TextIndexDefinition.TextIndexDefinitionBuilder()
+                    .named(TEXT_INDEX)
+                    .onField("name", 10F)
+                    .onField("tags", 5F)
+                    .onField("description", 1F)
+                    .build());
+        } catch (Exception e) {
+            // A collection can only have one text index; an older one keeps working but
+            // without the weights
+            System.err.println("Could not create text index " + TEXT_INDEX + " on " + collection
+                    + " (drop the existing text index to replace it): " + e.getMessage());
+        }
+
+        // Exact category filter, with the common listing sorts served from the index.
+        // Listings sort by (field, _id) so keyset pages can seek on the same index
+        indexOps.ensureIndex(new Index().on("category", Sort.Direction.ASC).on("name", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC).named("category_name"));
+        indexOps.ensureIndex(new Index().on("category", Sort.Direction.ASC).on("price", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC).named("category_price"));
+        indexOps.ensureIndex(new Index().on("name", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("name_id"));
+        indexOps.ensureIndex(new Index().on("price", Sort.Direction.ASC).on("_id", Sort.Direction.ASC)
+                .named("price_id"));
+        indexOps.ensureIndex(new Index().on("featured", Sort.Direction.ASC).named("featured"));
+    }
+}
@@ -1,11 +1,28 @@
 package com.eds.catalog.repository;
 
+import com.eds.catalog.model.Product;
 import com.eds.catalog.model.ProductSearchRequest;
 import com.eds.catalog.model.ProductSearchResponse;
+import com.eds.catalog.model.ProductUpdateRequest;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface ProductRepositoryCustom {
     ProductSearchResponse searchProducts(ProductSearchRequest request);
     List<String> findDistinctCategories();
+    Map<String, Product> findVersionsByIds(Collection<String> ids);
+    Map<String, Long> countByCategory();
+    Product applyUpdate(String productId, ProductUpdateRequest request, Instant updatedAt, Long stockEpoch);
+    Product applyReviewRating(String productId, int rating);
+    boolean applyStockSync(String productId, long delta, String syncId, long epoch);
+    StockState findStockState(String productId);
+    void advanceStockEpoch(String productId, long epoch);
+    List<Product> findRatingCounters(Collection<String> ids);
+    Product setRatingCounters(String productId, Integer expectedVersion, long ratingSum, int reviewCount);
+    long estimatedProductCount();
+    void forEachProductId(Consumer<String> action);
 }
\ No newline at end of file
@@ -3,38 +3,269 @@ package com.eds.catalog.repository;
 import com.eds.catalog.model.Product;
 import com.eds.catalog.model.ProductSearchRequest;
 import com.eds.catalog.model.ProductSearchResponse;
+import com.eds.catalog.model.ProductUpdateRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.ConvertOperators;
+import org.springframework.data.mongodb.core.aggregation.SetOperation;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Repository;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 public class ProductRepositoryImpl implements ProductRepositoryCustom {
     
     private final MongoTemplate mongoTemplate;
 
+    // "text": $text over the weighted text index (word/stem matching, can sort by
+    // relevance); "regex": the old case-insensitive substring scan
+    @Value("${catalog.search.engine:text}")
+    private String searchEngine = "text";
+
+    @Value("${catalog.search.create-indexes:true}")
+    private boolean createIndexes = true;
+
+    // Total used when the request doesn't ask for one: exact, estimate or none
+    @Value("${catalog.search.total-mode:estimate}")
+    private String defaultTotalMode = "estimate";
+
+    @Value("${catalog.search.count-cache-ttl-ms:30000}")
+    private long countCacheTtlMs = 30000;
+
+    // Exact counts for filtered searches in "estimate" mode, keyed by the query filter
+    private Cache<String, Long> countCache = newCountCache(countCacheTtlMs);
+
     public ProductRepositoryImpl(MongoTemplate mongoTemplate) {
         this.mongoTemplate = mongoTemplate;
     }
 
+    @PostConstruct
+    public void init() {
+        countCache = newCountCache(countCacheTtlMs);
+        ensureIndexes();
+    }
+
+    private static Cache<String, Long> newCountCache(long ttlMs) {
+        return Caffeine.newBuilder()
+                .maximumSize(1000)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+    }
+
+    private void ensureIndexes() {
+        if (!createIndexes) {
+            return;
+        }
+        try {
+            ProductIndexes.ensureIndexes(mongoTemplate, mongoTemplate.getCollectionName(Product.class));
+        } catch (Exception e) {
+            // Searches still work, just without index support
+            System.err.println("Could not create product indexes: " + e.getMessage());
+        }
+    }
+
+    public void setSearchEngine(String searchEngine) {
+        this.searchEngine = searchEngine;
+    }
+
     @Override
     public List<String> findDistinctCategories() {
         return mongoTemplate.findDistinct("category", Product.class, String.class);
     }
 
     @Override
-    public ProductSearchResponse searchProducts(ProductSearchRequest request) {
+    public Map<String, Long> countByCategory() {
+        // One $group pass; served from the category indexes
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("category").ne(null)),
+                Aggregation.group("category").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Product.class, Document.class)) {
+            counts.put(row.getString("_id"), ((Number) row.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    @Override
+    public Product applyUpdate(String productId, ProductUpdateRequest request, Instant updatedAt, Long stockEpoch) {
+        // $set only the fields the request carries and bump the version in the same
+        // findAndModify; no read beforehand, so there is nothing to conflict with unless
+        // the caller asked for a specific version
+        Update update = new Update()
+                .set("updatedAt", updatedAt)
+                .inc("version", 1);
+        if (request.getName() != null) update.set("name", request.getName());
+        if (request.getDescription() != null) update.set("description", request.getDescription());
+        if (request.getPrice() != null) update.set("price", request.getPrice());
+        if (request.getStock() != null) update.set("stock", request.getStock());
+        // Sales the reservation sync took before this epoch must not land on the new stock
+        if (request.getStock() != null && stockEpoch != null) update.max("stockEpoch", stockEpoch);
+        if (request.getCategory() != null) update.set("category", request.getCategory());
+        if (request.getImages() != null) update.set("images", request.getImages());
+
+        Criteria criteria = Criteria.where("_id").is(productId);
+        if (request.getExpectedVersion() != null) {
+            criteria = criteria.and("version").is(request.getExpectedVersion());
+        }
+        // Returns the document as it was before the update (null if nothing matched)
+        return mongoTemplate.findAndModify(
+                new Query(criteria),
+                update,
+                FindAndModifyOptions.options().returnNew(false),
+                Product.class);
+    }
+
+    @Override
+    public Product applyReviewRating(String productId, int rating) {
+        // One atomic update pipeline instead of reloading every review: add the stars to
+        // the counters, then derive the average from them (the second stage sees the
+        // first one's output). Products rated before the counters existed start from
+        // their stored average; the reconciliation job replaces that with the exact sum.
+        AggregationExpression legacySum = ConvertOperators.valueOf(
+                ArithmeticOperators.valueOf(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("rating").then(0))
+                        .multiplyBy(ConditionalOperators.ifNull("reviewCount").then(0))).round()).convertToLong();
+        SetOperation counters = SetOperation.set("ratingSum")
+                .toValue(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("ratingSum").thenValueOf(legacySum)).add(rating))
+                .and().set("reviewCount").toValue(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("reviewCount").then(0)).add(1))
+                .and().set("version").toValue(ArithmeticOperators.valueOf(ConditionalOperators.ifNull("version").then(0)).add(1))
+                .and().set("updatedAt").toValue(Date.from(Instant.now()));
+        SetOperation average = SetOperation.set("rating")
+                .toValue(ArithmeticOperators.valueOf(ArithmeticOperators.valueOf("ratingSum").divideBy("reviewCount")).roundToPlace(1));
+
+        return mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(productId)),
+                AggregationUpdate.from(List.of(counters, average)),
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+    }
+
+    @Override
+    public boolean applyStockSync(String productId, long delta, String syncId, long epoch) {
+        // Stock is served from the reservation counters, so this leaves version alone:
+        // cached copies are not stale in any way readers can see. The sync id makes a
+        // retried sync a no-op; the epoch skips sales an absolute stock write replaced.
+        Criteria criteria = Criteria.where("_id").is(productId).and("stockSyncId").ne(syncId)
+                .and("stockEpoch").in(epoch == 0 ? new Object[]{0L, null} : new Object[]{epoch});
+        return mongoTemplate.updateFirst(
+                new Query(criteria),
+                new Update().inc("stock", -delta).set("stockSyncId", syncId),
+                Product.class).getMatchedCount() > 0;
+    }
+
+    @Override
+    public StockState findStockState(String productId) {
+        Query query = new Query(Criteria.where("_id").is(productId));
+        query.fields().include("stock", "stockEpoch", "stockSyncId");
+        Document document = mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(Product.class));
+        if (document == null) {
+            return null;
+        }
+        Object stock = document.get("stock");
+        Object epoch = document.get("stockEpoch");
+        return new StockState(stock instanceof Number number ? number.intValue() : 0,
+                epoch instanceof Number number ? number.longValue() : 0,
+                document.getString("stockSyncId"));
+    }
+
+    @Override
+    public void advanceStockEpoch(String productId, long epoch) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(productId)),
+                new Update().max("stockEpoch", epoch), Product.class);
+    }
+
+    @Override
+    public List<Product> findRatingCounters(Collection<String> ids) {
+        // Everything that has reviews or claims to have them
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("reviewCount").gt(0),
+                Criteria.where("_id").in(ids)));
+        query.fields().include("ratingSum", "reviewCount", "version");
+        return mongoTemplate.find(query, Product.class);
+    }
+
+    @Override
+    public Product setRatingCounters(String productId, Integer expectedVersion, long ratingSum, int reviewCount) {
+        // Compare-and-set on the version so a concurrent review is never overwritten
+        Update update = new Update()
+                .set("ratingSum", ratingSum)
+                .set("reviewCount", reviewCount)
+                .set("rating", reviewCount > 0 ? Math.round(ratingSum * 10.0 / reviewCount) / 10.0 : 0.0)
+                .set("updatedAt", Instant.now())
+                .inc("version", 1);
+        return mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(productId).and("version").is(expectedVersion)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Product.class);
+    }
+
+    @Override
+    public long estimatedProductCount() {
+        // Collection metadata, not a scan
+        return mongoTemplate.estimatedCount(Product.class);
+    }
+
+    @Override
+    public void forEachProductId(Consumer<String> action) {
+        // Cursor over _id only, so the whole collection never sits in memory
         Query query = new Query();
+        query.fields().include("_id");
+        try (Stream<Product> products = mongoTemplate.stream(query, Product.class)) {
+            products.forEach(product -> action.accept(product.getId()));
+        }
+    }
+
+    @Override
+    public Map<String, Product> findVersionsByIds(Collection<String> ids) {
+        // Single $in query, projecting only version and updatedAt
+        Query query = new Query(Criteria.where("_id").in(ids));
+        query.fields().include("version", "updatedAt");
+
+        Map<String, Product> versions = new HashMap<>();
+        for (Product product : mongoTemplate.find(query, Product.class)) {
+            versions.put(product.getId(), product);
+        }
+        return versions;
+    }
+
+    @Override
+    public ProductSearchResponse searchProducts(ProductSearchRequest request) {
+        boolean hasSearch = request.getSearch() != null && !request.getSearch().trim().isEmpty();
+        boolean textSearch = hasSearch && !"regex".equals(searchEngine);
+        Query query = textSearch
+                ? TextQuery.queryText(TextCriteria.forDefaultLanguage().matching(request.getSearch().trim()))
+                : new Query();
         List<Criteria> criteria = new ArrayList<>();
 
-        // Text search
-        if (request.getSearch() != null && !request.getSearch().trim().isEmpty()) {
+        // Regex search scans the whole collection; kept for comparison and as a fallback
+        if (hasSearch && !textSearch) {
             Criteria searchCriteria = new Criteria().orOperator(
                 Criteria.where("name").regex(request.getSearch(), "i"),
                 Criteria.where("description").regex(request.getSearch(), "i"),
@@ -43,9 +274,10 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
             criteria.add(searchCriteria);
         }
 
-        // Category filter
+        // Category filter: exact match so it can use the category indexes (the UI
+        // sends values from /products/categories)
         if (request.getCategory() != null && !request.getCategory().trim().isEmpty()) {
-            criteria.add(Criteria.where("category").regex(request.getCategory(), "i"));
+            criteria.add(Criteria.where("category").is(request.getCategory().trim()));
         }
 
         // Price range filter
@@ -66,33 +298,116 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
             query.addCriteria(new Criteria().andOperator(criteria.toArray(new Criteria[0])));
         }
 
-        // Count total results
-        long totalElements = mongoTemplate.count(query, Product.class);
-
-        // Add sorting
-        Sort sort = Sort.by(
-            "desc".equalsIgnoreCase(request.getSortDirection()) ? 
-                Sort.Direction.DESC : Sort.Direction.ASC,
-            request.getSortBy()
-        );
-        query.with(sort);
+        // Totals are optional: the count is as expensive as the page itself
+        boolean keyset = request.getCursor() != null;
+        String totalMode = request.getTotal() != null ? request.getTotal() : (keyset ? "none" : defaultTotalMode);
+        long totalElements = countTotal(query, criteria.isEmpty() && !hasSearch, totalMode);
 
-        // Add pagination
-        Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
-        query.with(pageable);
+        // Add sorting ("relevance" = text score, best first)
+        boolean byRelevance = "relevance".equalsIgnoreCase(request.getSortBy());
+        boolean descending = "desc".equalsIgnoreCase(request.getSortDirection());
+        String sortField = byRelevance ? "name" : request.getSortBy();
+        if (keyset && byRelevance) {
+            throw new IllegalArgumentException("Cursor pagination does not support sorting by relevance");
+        }
+        if (textSearch && byRelevance) {
+            ((TextQuery) query).sortByScore();
+        } else {
+            // _id breaks ties so pages are stable (and keyset positions unique)
+            Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+            query.with(isIdField(sortField) ? Sort.by(direction, "_id") : Sort.by(direction, sortField, "_id"));
+        }
 
-        // Execute query
-        List<Product> products = mongoTemplate.find(query, Product.class);
+        String nextCursor = null;
+        List<Product> products;
+        if (keyset) {
+            // Seek past the last product of the previous page instead of skipping
+            if (!request.getCursor().isEmpty()) {
+                SearchCursor cursor = SearchCursor.decode(request.getCursor());
+                if (!sortField.equals(cursor.sortBy) || descending != cursor.descending) {
+                    throw new IllegalArgumentException("Cursor was issued for a different sort order");
+                }
+                query.addCriteria(after(cursor));
+            }
+            query.limit(request.getSize() + 1);
+            products = mongoTemplate.find(query, Product.class);
+            if (products.size() > request.getSize()) {
+                products = new ArrayList<>(products.subList(0, request.getSize()));
+                nextCursor = cursorAfter(products.get(products.size() - 1), sortField, descending).encode();
+            }
+        } else {
+            // Add pagination
+            Pageable pageable = PageRequest.of(request.getPage(), request.getSize());
+            query.with(pageable);
+            products = mongoTemplate.find(query, Product.class);
+        }
 
         // Calculate pagination info
-        int totalPages = (int) Math.ceil((double) totalElements / request.getSize());
+        int totalPages = totalElements < 0 ? -1 : (int) Math.ceil((double) totalElements / request.getSize());
 
         return new ProductSearchResponse(
             products,
             totalElements,
             totalPages,
             request.getPage(),
-            request.getSize()
+            request.getSize(),
+            nextCursor,
+            "exact".equals(totalMode)
         );
     }
+
+    /**
+     * exact: count every time. estimate: collection metadata when unfiltered, otherwise
+     * an exact count cached briefly per filter. none: -1.
+     */
+    private long countTotal(Query query, boolean unfiltered, String totalMode) {
+        switch (totalMode) {
+            case "none":
+                return -1;
+            case "estimate":
+                if (unfiltered) {
+                    return mongoTemplate.estimatedCount(Product.class);
+                }
+                return countCache.get(query.getQueryObject().toJson(), key -> mongoTemplate.count(query, Product.class));
+            default:
+                return mongoTemplate.count(query, Product.class);
+        }
+    }
+
+    private SearchCursor cursorAfter(Product last, String sortField, boolean descending) {
+        // Use the stored (converted) representation so comparisons match the sort
+        Document document = new Document();
+        mongoTemplate.getConverter().write(last, document);
+        Object lastValue = isIdField(sortField) ? document.get("_id") : document.get(sortField);
+        return new SearchCursor(sortField, descending, lastValue, document.get("_id"));
+    }
+
+    /**
+     * Keyset condition for "after the cursor" in (sortField, _id) order. Missing/null
+     * values sort before everything ascending and after everything descending.
+     */
+    private static Criteria after(SearchCursor cursor) {
+        String field = cursor.sortBy;
+        Object value = cursor.lastValue;
+        Object id = cursor.lastId;
+        boolean desc = cursor.descending;
+
+        if (isIdField(field)) {
+            return desc ? Criteria.where("_id").lt(id) : Criteria.where("_id").gt(id);
+        }
+        Criteria idAfter = desc ? Criteria.where("_id").lt(id) : Criteria.where("_id").gt(id);
+        if (value == null) {
+            Criteria tie = new Criteria().andOperator(Criteria.where(field).is(null), idAfter);
+            return desc ? new Criteria().orOperator(tie) : new Criteria().orOperator(tie, Criteria.where(field).ne(null));
+        }
+        Criteria beyond = desc ? Criteria.where(field).lt(value) : Criteria.where(field).gt(value);
+        Criteria tie = new Criteria().andOperator(Criteria.where(field).is(value), idAfter);
+        return desc
+                ? new Criteria().orOperator(beyond, tie, Criteria.where(field).is(null))
+                : new Criteria().orOperator(beyond, tie);
+    }
+
+    private static boolean isIdField(String field) {
+        return "id".equals(field) || "_id".equals(field);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.eds.catalog.repository;
+
+/**
+ * Sum of review stars and number of reviews for one product.
+ */
+public record RatingTotals(long sum, int count) {
+}
@@ -7,7 +7,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface ReviewRepository extends MongoRepository<Review, String> {
+public interface ReviewRepository extends MongoRepository<Review, String>, ReviewRepositoryCustom {
     List<Review> findByProductIdOrderByCreatedAtDesc(String productId);
     boolean existsByProductIdAndUserId(String productId, String userId);
     long countByProductId(String productId);
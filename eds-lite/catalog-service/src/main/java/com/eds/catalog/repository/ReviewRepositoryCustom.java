@@ -0,0 +1,13 @@
+package com.eds.catalog.repository;
+
+import com.eds.catalog.model.ReviewPage;
+import com.eds.catalog.model.ReviewSummary;
+
+import java.util.Map;
+
+public interface ReviewRepositoryCustom {
+    ReviewPage findPage(String productId, String cursor, int size);
+    ReviewSummary summarize(String productId);
+    Map<String, RatingTotals> sumRatingsByProduct();
+    RatingTotals sumRatings(String productId);
+}
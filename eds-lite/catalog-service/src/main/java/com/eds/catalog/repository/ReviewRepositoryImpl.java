@@ -0,0 +1,135 @@
+package com.eds.catalog.repository;
+
+import com.eds.catalog.model.Review;
+import com.eds.catalog.model.ReviewPage;
+import com.eds.catalog.model.ReviewSummary;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class ReviewRepositoryImpl implements ReviewRepositoryCustom {
+    private static final String SORT_FIELD = "createdAt";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${catalog.reviews.create-indexes:true}")
+    private boolean createIndexes = true;
+
+    public ReviewRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!createIndexes) {
+            return;
+        }
+        try {
+            // Serves the newest-first page query (and its keyset continuation) as an index
+            // range scan, and prefixes productId lookups
+            mongoTemplate.indexOps(Review.class).ensureIndex(new Index()
+                    .on("productId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.DESC)
+                    .on("_id", Sort.Direction.DESC)
+                    .named("product_created"));
+        } catch (Exception e) {
+            System.err.println("Could not create review indexes: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public ReviewPage findPage(String productId, String cursor, int size) {
+        Query query = new Query(Criteria.where("productId").is(productId));
+        if (cursor != null && !cursor.isEmpty()) {
+            SearchCursor after = SearchCursor.decode(cursor);
+            if (!SORT_FIELD.equals(after.sortBy) || !after.descending) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // Newest first: older than the last review, or the same instant and a lower _id
+            query.addCriteria(new Criteria().orOperator(
+                    Criteria.where(SORT_FIELD).lt(after.lastValue),
+                    new Criteria().andOperator(Criteria.where(SORT_FIELD).is(after.lastValue),
+                            Criteria.where("_id").lt(after.lastId))));
+        }
+        query.with(Sort.by(Sort.Direction.DESC, SORT_FIELD, "_id"));
+        // One extra row tells us whether there is a next page
+        query.limit(size + 1);
+
+        List<Review> reviews = mongoTemplate.find(query, Review.class);
+        String nextCursor = null;
+        if (reviews.size() > size) {
+            reviews = reviews.subList(0, size);
+            nextCursor = cursorAfter(reviews.get(size - 1)).encode();
+        }
+        return new ReviewPage(reviews, nextCursor, null);
+    }
+
+    private SearchCursor cursorAfter(Review last) {
+        // Use the stored (converted) representation so comparisons match the sort
+        Document document = new Document();
+        mongoTemplate.getConverter().write(last, document);
+        return new SearchCursor(SORT_FIELD, true, document.get(SORT_FIELD), document.get("_id"));
+    }
+
+    @Override
+    public ReviewSummary summarize(String productId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("productId").is(productId)),
+                Aggregation.group("rating").count().as("count"));
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        for (int stars = 5; stars >= 1; stars--) {
+            histogram.put(stars, 0L);
+        }
+        long count = 0;
+        long sum = 0;
+        for (Document row : mongoTemplate.aggregate(aggregation, Review.class, Document.class)) {
+            if (!(row.get("_id") instanceof Number stars)) {
+                continue;
+            }
+            long rows = ((Number) row.get("count")).longValue();
+            histogram.merge(stars.intValue(), rows, Long::sum);
+            count += rows;
+            sum += stars.longValue() * rows;
+        }
+        double average = count > 0 ? Math.round(sum * 10.0 / count) / 10.0 : 0.0;
+        return new ReviewSummary(count, average, histogram);
+    }
+
+    @Override
+    public Map<String, RatingTotals> sumRatingsByProduct() {
+        // One $group pass over all reviews; only used by the background reconciliation
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.group("productId").sum("rating").as("sum").count().as("count"));
+        Map<String, RatingTotals> totals = new HashMap<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, Review.class, Document.class)) {
+            totals.put(row.getString("_id"), new RatingTotals(
+                    ((Number) row.get("sum")).longValue(), ((Number) row.get("count")).intValue()));
+        }
+        return totals;
+    }
+
+    @Override
+    public RatingTotals sumRatings(String productId) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("productId").is(productId)),
+                Aggregation.group("productId").sum("rating").as("sum").count().as("count"));
+        Document row = mongoTemplate.aggregate(aggregation, Review.class, Document.class).getUniqueMappedResult();
+        if (row == null) {
+            return new RatingTotals(0, 0);
+        }
+        return new RatingTotals(((Number) row.get("sum")).longValue(), ((Number) row.get("count")).intValue());
+    }
+}
@@ -0,0 +1,52 @@
+package com.eds.catalog.repository;
+
+import org.bson.Document;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset pagination token: the sort field and direction plus the stored sort
+ * value and _id of the last document on the previous page (products or reviews). Values are kept in BSON
+ * extended JSON so dates, decimals and ObjectIds round-trip with their types.
+ */
+final class SearchCursor {
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder().outputMode(JsonMode.EXTENDED).build();
+
+    final String sortBy;
+    final boolean descending;
+    final Object lastValue;
+    final Object lastId;
+
+    SearchCursor(String sortBy, boolean descending, Object lastValue, Object lastId) {
+        this.sortBy = sortBy;
+        this.descending = descending;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+
+    String encode() {
+        Document document = new Document("s", sortBy)
+                .append("d", descending ? -1 : 1)
+                .append("v", lastValue)
+                .append("id", lastId);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(document.toJson(JSON).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static SearchCursor decode(String token) {
+        Document document;
+        try {
+            document = Document.parse(new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+        if (!(document.get("s") instanceof String sortBy) || !document.containsKey("id")) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return new SearchCursor(sortBy, document.get("d") instanceof Integer d && d < 0,
+                document.get("v"), document.get("id"));
+    }
+}
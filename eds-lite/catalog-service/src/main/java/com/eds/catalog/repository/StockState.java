@@ -0,0 +1,8 @@
+package com.eds.catalog.repository;
+
+/**
+ * The stock fields the reservation counters are rebuilt and synced against: on-hand
+ * stock, the epoch of the last absolute stock write and the id of the last applied sync.
+ */
+public record StockState(int stock, long epoch, String syncId) {
+}
@@ -1,60 +1,300 @@
 package com.eds.catalog.service;
 
+import com.eds.catalog.cache.TwoTierCacheManager;
+import com.eds.catalog.cache.VersionAwareCache;
 import com.eds.catalog.model.CacheInvalidationEvent;
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.KafkaUtils;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 @Service
 @ConditionalOnProperty(name = "spring.cache.type", havingValue = "redis")
-public class CacheInvalidationConsumer {
+public class CacheInvalidationConsumer implements ConsumerSeekAware {
+    private static final String EVICTORS_GROUP = "cache-evictors";
+
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
+    private final CacheManager cacheManager;
+    private final ProductRepository productRepository;
+    private final ProductCacheLoader productCacheLoader;
+    private final FeaturedProductsCache featuredProductsCache;
+    private final ProductIdFilter productIdFilter;
     private final Counter invalidationsReceived;
+    private final Counter localInvalidationsReceived;
+    private final Counter evictionsSkippedNewer;
+    private final Counter invalidationsUpserted;
+    private final Counter invalidationsDeduplicated;
+    private final DistributionSummary invalidationBatchEvents;
     private final Timer inconsistencyWindowTimer;
     
     @Value("${cache.mode:ttl_invalidate}")
     private String cacheMode;
 
-    public CacheInvalidationConsumer(MeterRegistry meterRegistry) {
+    public CacheInvalidationConsumer(MeterRegistry meterRegistry,
+                                     CacheManager cacheManager,
+                                     ProductRepository productRepository,
+                                     ProductCacheLoader productCacheLoader,
+                                     FeaturedProductsCache featuredProductsCache,
+                                     ProductIdFilter productIdFilter) {
+        this.cacheManager = cacheManager;
+        this.productRepository = productRepository;
+        this.productCacheLoader = productCacheLoader;
+        this.featuredProductsCache = featuredProductsCache;
+        this.productIdFilter = productIdFilter;
         this.invalidationsReceived = Counter.builder("invalidations_received").register(meterRegistry);
+        this.localInvalidationsReceived = Counter.builder("invalidations_received_local").register(meterRegistry);
+        this.evictionsSkippedNewer = Counter.builder("invalidations_skipped_newer").register(meterRegistry);
+        this.invalidationsUpserted = Counter.builder("invalidations_upserted").register(meterRegistry);
+        this.invalidationsDeduplicated = Counter.builder("invalidations_deduplicated").register(meterRegistry);
+        this.invalidationBatchEvents = DistributionSummary.builder("invalidation_consumer_batch_events")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
         this.inconsistencyWindowTimer = Timer.builder("inconsistency_window").register(meterRegistry);
     }
 
-    @KafkaListener(topics = "cache.invalidate", groupId = "cache-evictors")
-    public void handleCacheInvalidation(CacheInvalidationEvent event) {
-        if (!"ttl_invalidate".equals(cacheMode)) {
+    /**
+     * Batch listener: gets a whole poll's worth of events, collapses them to one version
+     * per key and applies them with one Redis round trip. Offsets are committed by the
+     * container after this returns; an exception leaves them uncommitted and the batch
+     * is redelivered.
+     */
+    @KafkaListener(topics = "cache.invalidate", groupId = EVICTORS_GROUP,
+            containerFactory = "batchKafkaListenerContainerFactory")
+    public void handleCacheInvalidation(List<CacheInvalidationEvent> events) {
+        if (!"ttl_invalidate".equals(cacheMode) && !"write_through".equals(cacheMode)) {
+            return;
+        }
+
+        Map<String, Integer> versions = mergeKeyVersions(events);
+        invalidationBatchEvents.record(events.size());
+        invalidationsDeduplicated.increment(keyCount(events) - versions.size());
+        // Counted per key so it lines up with invalidations_sent for batched events
+        invalidationsReceived.increment(versions.size());
+
+        if ("write_through".equals(cacheMode)) {
+            upsert(versions);
+        } else if (!versions.isEmpty()) {
+            evict(versions);
+        }
+        // Several featured events in one poll need only one drop
+        if (hasNamespace(events, FeaturedProductsCache.NAMESPACE)) {
+            featuredProductsCache.invalidate();
+        }
+
+        for (CacheInvalidationEvent event : events) {
+            recordInconsistencyWindow(event);
+        }
+    }
+
+    /**
+     * ttl_invalidate: evict only entries that are not newer than the event. A late or
+     * replayed event (offsets reset to earliest) must not throw away a fresher copy.
+     */
+    private void evict(Map<String, Integer> versions) {
+        Cache cache = cacheManager.getCache("productById");
+        if (cache instanceof VersionAwareCache versionAwareCache) {
+            // Covers both Redis (one Lua compare-and-UNLINK for the whole batch) and this
+            // instance's L1
+            List<Object> kept = versionAwareCache.evictAllIfNotNewer(versions);
+            if (!kept.isEmpty()) {
+                evictionsSkippedNewer.increment(kept.size());
+                System.out.println("Skipped eviction of products " + kept
+                        + ": cached copies are newer than the event");
+            }
+        } else if (redisTemplate != null) {
+            // Note: Spring Cache uses "cacheName::key" format in Redis
+            // The event contains just the productIds, we need to add the cache prefix
+            // (productById::1) and drop them all with a single UNLINK
+            redisTemplate.unlink(versions.keySet().stream().map(productId -> "productById::" + productId).toList());
+        }
+    }
+
+    /**
+     * write_through: the writer has already put the new version into the cache, so
+     * instead of deleting we only make sure the cache is not behind the event. Entries
+     * that are missing stay missing (no point loading products nobody is reading).
+     */
+    private void upsert(Map<String, Integer> versions) {
+        Cache cache = cacheManager.getCache("productById");
+        if (cache == null) {
             return;
         }
+        List<String> behind = new ArrayList<>();
+        versions.forEach((productId, version) -> {
+            if (version == null) {
+                // Deleted product
+                cache.evict(productId);
+                return;
+            }
+            Cache.ValueWrapper current = cache.get(productId);
+            if (current == null || !(current.get() instanceof Product cached)) {
+                return;
+            }
+            if (cached.getVersion() != null && cached.getVersion() >= version) {
+                evictionsSkippedNewer.increment();
+                return;
+            }
+            behind.add(productId);
+        });
+        if (behind.isEmpty()) {
+            return;
+        }
+
+        // One Mongo round trip for every cached entry that is behind
+        Set<String> found = new HashSet<>();
+        for (Product product : productRepository.findAllById(behind)) {
+            productCacheLoader.writeThrough(product.getId(), product, cache);
+            found.add(product.getId());
+        }
+        for (String productId : behind) {
+            if (!found.contains(productId)) {
+                cache.evict(productId);
+            }
+        }
+        invalidationsUpserted.increment(behind.size());
+    }
 
-        invalidationsReceived.increment();
-        
-        // Delete keys from Redis
-        // Note: Spring Cache uses "cacheName::key" format in Redis
-        // The event contains just the productId, we need to add the cache prefix
-        if (redisTemplate != null) {
+    /**
+     * Collapses productById events to one version per key: the highest version wins, and
+     * a delete (null version) wins over any version.
+     */
+    private static Map<String, Integer> mergeKeyVersions(List<CacheInvalidationEvent> events) {
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        for (CacheInvalidationEvent event : events) {
+            if (!isProductEvent(event)) {
+                continue;
+            }
             for (String productId : event.getKeys()) {
-                // Delete the actual Redis key (Spring Cache format: productById::1)
-                redisTemplate.delete("productById::" + productId);
+                Integer version = event.versionOf(productId);
+                if (versions.containsKey(productId)) {
+                    Integer current = versions.get(productId);
+                    versions.put(productId, current == null || version == null ? null : Math.max(current, version));
+                } else {
+                    versions.put(productId, version);
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static int keyCount(List<CacheInvalidationEvent> events) {
+        int count = 0;
+        for (CacheInvalidationEvent event : events) {
+            if (isProductEvent(event)) {
+                count += event.getKeys().size();
+            }
+        }
+        return count;
+    }
+
+    // Events from before namespaces were used carry no ns
+    private static boolean isProductEvent(CacheInvalidationEvent event) {
+        return event != null && event.getKeys() != null
+                && (event.getNs() == null || "product".equals(event.getNs()));
+    }
+
+    private static boolean hasNamespace(List<CacheInvalidationEvent> events, String ns) {
+        for (CacheInvalidationEvent event : events) {
+            if (event != null && ns.equals(event.getNs())) {
+                return true;
             }
         }
+        return false;
+    }
 
+    private void recordInconsistencyWindow(CacheInvalidationEvent event) {
         // Calculate inconsistency window (time from event creation to processing)
-        if (event.getTs() != null) {
+        if (event != null && event.getTs() != null) {
             long inconsistencyWindowMs = Duration.between(event.getTs(), Instant.now()).toMillis();
             inconsistencyWindowTimer.record(inconsistencyWindowMs, TimeUnit.MILLISECONDS);
             System.out.println("Inconsistency window: " + inconsistencyWindowMs + "ms");
         }
     }
-}
 
+    /**
+     * Every instance has its own L1, but the shared "cache-evictors" group delivers each
+     * event to only one of them. This listener joins a per-instance group so every JVM
+     * sees every event and can drop its local copy. Redis is left to the listener above.
+     */
+    @KafkaListener(topics = "cache.invalidate",
+            groupId = "${cache.l1.group-id:cache-l1-${random.uuid}}",
+            containerFactory = "batchKafkaListenerContainerFactory",
+            properties = {"auto.offset.reset=latest"},
+            autoStartup = "${cache.l1.enabled:true}")
+    public void handleLocalInvalidation(List<CacheInvalidationEvent> events) {
+        if (!"ttl_invalidate".equals(cacheMode) && !"write_through".equals(cacheMode)) {
+            return;
+        }
+
+        localInvalidationsReceived.increment(events.size());
+        Map<String, Integer> versions = mergeKeyVersions(events);
+        evictLocal(versions);
+        // Products created on other instances must get into this instance's id filter
+        List<String> existing = new ArrayList<>();
+        versions.forEach((productId, version) -> {
+            if (version != null) {
+                existing.add(productId);
+            }
+        });
+        productIdFilter.onProductsChanged(existing, oldestTs(events));
+    }
+
+    /**
+     * Called on the consumer thread of either listener; only the per-instance L1 group
+     * matters to the id filter.
+     */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        if (!assignments.isEmpty() && !EVICTORS_GROUP.equals(KafkaUtils.getConsumerGroupId())) {
+            productIdFilter.onL1ListenerAssigned();
+        }
+    }
+
+    private static Instant oldestTs(List<CacheInvalidationEvent> events) {
+        Instant oldest = null;
+        for (CacheInvalidationEvent event : events) {
+            if (event != null && event.getTs() != null && (oldest == null || event.getTs().isBefore(oldest))) {
+                oldest = event.getTs();
+            }
+        }
+        return oldest;
+    }
+
+    private void evictLocal(Map<String, Integer> versions) {
+        if (!(cacheManager instanceof TwoTierCacheManager twoTierCacheManager)) {
+            return;
+        }
+        // write_through: Redis already holds the event's version, so only drop local
+        // copies that are strictly older and let the next read promote the new one
+        versions.forEach((productId, version) -> {
+            if ("write_through".equals(cacheMode) && version != null) {
+                version = version - 1;
+            }
+            twoTierCacheManager.evictLocalIfNotNewer("productById", productId, version);
+        });
+    }
+}
@@ -0,0 +1,304 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.cache.BulkCache;
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills productById before this instance reports ready, so a deploy or cold start
+ * doesn't send the first minutes of traffic to Mongo.
+ *
+ * Every instance periodically folds the read counts from {@link HotKeyTracker} into a
+ * shared Redis sorted set (older counts decay each time, so it follows current
+ * traffic and survives restarts). At startup the top-n ids of that snapshot are
+ * fetched in batches on a small pool: one multi-get against the cache (which also
+ * fills L1 from Redis) and one $in query for whatever Redis did not have. Without a
+ * snapshot, the featured products and the newest products are cached instead.
+ *
+ * This runs as an ApplicationRunner, and Spring Boot only marks the app ready after
+ * runners return, so /actuator/health/readiness stays OUT_OF_SERVICE until the
+ * warm-up finishes or timeout-ms passes, whichever is first.
+ */
+@Service
+public class CacheWarmer implements ApplicationRunner {
+    private static final String CACHE_NAME = "productById";
+    private static final String SNAPSHOT_KEY = "productAccess::snapshot";
+
+    // KEYS[1] = snapshot, ARGV[1] = decay factor, ARGV[2] = entries to keep, ARGV[3] = ttl
+    // ms, ARGV[4..] = id, count pairs. Scores only mean something relative to each other.
+    private static final DefaultRedisScript<Long> MERGE_SNAPSHOT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              redis.call('ZUNIONSTORE', KEYS[1], 1, KEYS[1], 'WEIGHTS', ARGV[1])
+            end
+            for i = 4, #ARGV, 2 do
+              redis.call('ZINCRBY', KEYS[1], ARGV[i + 1], ARGV[i])
+            end
+            redis.call('ZREMRANGEBYRANK', KEYS[1], 0, -(tonumber(ARGV[2]) + 1))
+            redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            return redis.call('ZCARD', KEYS[1])
+            """, Long.class);
+
+    private final HotKeyTracker hotKeyTracker;
+    private final ProductCacheLoader productCacheLoader;
+    private final ProductRepository productRepository;
+    private final CacheManager cacheManager;
+    private final MeterRegistry meterRegistry;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "access-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Timer warmupTimer;
+    private final Counter timeouts;
+    private final Counter snapshotWrites;
+    private final Counter snapshotFailures;
+    private final AtomicInteger targetProducts = new AtomicInteger();
+    private final AtomicInteger warmedProducts = new AtomicInteger();
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.warmup.top-n:500}")
+    private int topN;
+
+    @Value("${cache.warmup.batch-size:100}")
+    private int batchSize;
+
+    @Value("${cache.warmup.parallelism:4}")
+    private int parallelism;
+
+    @Value("${cache.warmup.timeout-ms:30000}")
+    private long timeoutMs;
+
+    @Value("${cache.warmup.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${cache.warmup.snapshot.interval-ms:60000}")
+    private long snapshotIntervalMs;
+
+    // Weight applied to the existing scores before each merge
+    @Value("${cache.warmup.snapshot.decay:0.9}")
+    private double snapshotDecay;
+
+    @Value("${cache.warmup.snapshot.ttl-ms:604800000}")
+    private long snapshotTtlMs;
+
+    public CacheWarmer(HotKeyTracker hotKeyTracker,
+                       ProductCacheLoader productCacheLoader,
+                       ProductRepository productRepository,
+                       CacheManager cacheManager,
+                       MeterRegistry meterRegistry) {
+        this.hotKeyTracker = hotKeyTracker;
+        this.productCacheLoader = productCacheLoader;
+        this.productRepository = productRepository;
+        this.cacheManager = cacheManager;
+        this.meterRegistry = meterRegistry;
+        this.warmupTimer = Timer.builder("cache_warmup_duration").register(meterRegistry);
+        this.timeouts = Counter.builder("cache_warmup_timeouts").register(meterRegistry);
+        this.snapshotWrites = Counter.builder("access_snapshot_writes").register(meterRegistry);
+        this.snapshotFailures = Counter.builder("access_snapshot_failures").register(meterRegistry);
+        Gauge.builder("cache_warmup_target_products", targetProducts, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("cache_warmup_warmed_products", warmedProducts, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("cache_warmup_coverage", this, warmer -> warmer.targetProducts.get() > 0
+                ? (double) warmer.warmedProducts.get() / warmer.targetProducts.get() : 0).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!snapshotEnabled || !hotKeyTracker.isEnabled() || stringRedisTemplate == null || "none".equals(cacheMode)) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                writeSnapshot();
+            } catch (Exception e) {
+                snapshotFailures.increment();
+                System.err.println("CacheWarmer: snapshot write failed: " + e.getMessage());
+            }
+        }, snapshotIntervalMs, snapshotIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled || "none".equals(cacheMode)) {
+            return;
+        }
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return;
+        }
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, parallelism) + 1, r -> {
+            Thread thread = new Thread(r, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            pool.submit(() -> warm(cache, pool)).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            System.err.println("CacheWarmer: timed out after " + timeoutMs + "ms, continuing cold");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Serve cold rather than not at all
+            System.err.println("CacheWarmer: warm-up failed: " + e.getMessage());
+        } finally {
+            pool.shutdownNow();
+            long elapsedNanos = System.nanoTime() - start;
+            warmupTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+            System.out.println("CacheWarmer: warmed " + warmedProducts.get() + "/" + targetProducts.get()
+                    + " products in " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + "ms");
+        }
+    }
+
+    private Void warm(Cache cache, ExecutorService pool) throws InterruptedException {
+        List<String> ids = readSnapshot();
+        if (ids.isEmpty()) {
+            Counter.builder("cache_warmup_runs").tag("source", "fallback").register(meterRegistry).increment();
+            warmFromFallback(cache);
+            return null;
+        }
+        Counter.builder("cache_warmup_runs").tag("source", "snapshot").register(meterRegistry).increment();
+        targetProducts.set(ids.size());
+
+        // This task holds one pool thread; the batches share the other parallelism threads
+        List<Future<?>> batches = new ArrayList<>();
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < ids.size(); from += size) {
+            List<String> batch = ids.subList(from, Math.min(from + size, ids.size()));
+            batches.add(pool.submit(() -> warmedProducts.addAndGet(warmBatch(batch, cache))));
+        }
+        for (Future<?> batch : batches) {
+            try {
+                batch.get();
+            } catch (ExecutionException e) {
+                System.err.println("CacheWarmer: batch failed: " + e.getCause().getMessage());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns how many of {@code ids} are now cached.
+     */
+    private int warmBatch(List<String> ids, Cache cache) {
+        List<String> misses = new ArrayList<>();
+        if (cache instanceof BulkCache bulkCache) {
+            // Redis hits are promoted into L1 by the multi-get itself
+            List<Cache.ValueWrapper> wrappers = bulkCache.getAll(ids);
+            for (int i = 0; i < ids.size(); i++) {
+                Cache.ValueWrapper wrapper = wrappers.get(i);
+                if (wrapper == null || wrapper.get() == null) {
+                    misses.add(ids.get(i));
+                }
+            }
+        } else {
+            misses.addAll(ids);
+        }
+        return ids.size() - misses.size() + productCacheLoader.loadAll(misses, cache).size();
+    }
+
+    private void warmFromFallback(Cache cache) {
+        Map<String, Product> products = new LinkedHashMap<>();
+        for (Product product : productRepository.findByFeaturedTrue()) {
+            if (products.size() < topN) {
+                products.put(product.getId(), product);
+            }
+        }
+        int remaining = topN - products.size();
+        if (remaining > 0) {
+            // Newest first; _id is indexed and ObjectIds start with their creation time
+            for (Product product : productRepository.findAll(
+                    PageRequest.of(0, remaining, Sort.by(Sort.Direction.DESC, "_id")))) {
+                products.putIfAbsent(product.getId(), product);
+            }
+        }
+        targetProducts.set(products.size());
+        if (products.isEmpty()) {
+            return;
+        }
+        if (cache instanceof BulkCache bulkCache) {
+            bulkCache.putAll(products, 0);
+        } else {
+            products.forEach(cache::put);
+        }
+        warmedProducts.set(products.size());
+    }
+
+    private List<String> readSnapshot() {
+        if (stringRedisTemplate == null) {
+            return List.of();
+        }
+        try {
+            Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(SNAPSHOT_KEY, 0, topN - 1);
+            return ids != null ? new ArrayList<>(ids) : List.of();
+        } catch (Exception e) {
+            System.err.println("CacheWarmer: could not read access snapshot: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Merges this instance's current read counts into the shared snapshot.
+     */
+    public void writeSnapshot() {
+        List<HotKeyTracker.HotKey> tracked = hotKeyTracker.snapshot();
+        if (tracked.isEmpty()) {
+            // An idle instance must not decay the snapshot the busy ones are building
+            return;
+        }
+        List<String> args = new ArrayList<>(3 + tracked.size() * 2);
+        args.add(String.valueOf(snapshotDecay));
+        args.add(String.valueOf(topN));
+        args.add(String.valueOf(snapshotTtlMs));
+        for (HotKeyTracker.HotKey entry : tracked) {
+            args.add(entry.key());
+            args.add(String.valueOf(entry.estimate()));
+        }
+        stringRedisTemplate.execute(MERGE_SNAPSHOT_SCRIPT, List.of(SNAPSHOT_KEY), args.toArray());
+        snapshotWrites.increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,165 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.CategoryCount;
+import com.eds.catalog.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * In-memory snapshot of the product categories and how many products each has.
+ *
+ * Loaded with one $group aggregation at startup and kept current by applying the
+ * category changes of this instance's own creates, updates and deletes. Writes made
+ * by other instances are picked up by a periodic full reload. Reads never touch Mongo
+ * and come with an ETag so clients can revalidate for free.
+ */
+@Service
+public class CategoryCatalog {
+    private final ProductRepository productRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "category-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter reloads;
+    private final Counter reloadFailures;
+
+    // Guarded by "this"; snapshot is rebuilt from it after every change
+    private final Map<String, Long> counts = new TreeMap<>();
+    private volatile Snapshot snapshot;
+
+    @Value("${catalog.categories.refresh-ms:300000}")
+    private long refreshMs;
+
+    public CategoryCatalog(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.reloads = Counter.builder("category_catalog_reloads").register(meterRegistry);
+        this.reloadFailures = Counter.builder("category_catalog_reload_failures").register(meterRegistry);
+        Gauge.builder("category_catalog_size", this, catalog -> {
+            Snapshot current = catalog.snapshot;
+            return current != null ? current.categories().size() : 0;
+        }).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            reload();
+        } catch (Exception e) {
+            // First read loads it instead
+            System.err.println("CategoryCatalog: initial load failed: " + e.getMessage());
+        }
+        if (refreshMs > 0) {
+            scheduler.scheduleWithFixedDelay(() -> {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    System.err.println("CategoryCatalog: reload failed: " + e.getMessage());
+                }
+            }, refreshMs, refreshMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            reload();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    public void onProductCreated(String category) {
+        applyDelta(category, 1);
+    }
+
+    public void onProductDeleted(String category) {
+        applyDelta(category, -1);
+    }
+
+    public void onCategoryChanged(String oldCategory, String newCategory) {
+        if (oldCategory != null && oldCategory.equals(newCategory)) {
+            return;
+        }
+        synchronized (this) {
+            adjust(oldCategory, -1);
+            adjust(newCategory, 1);
+            publish();
+        }
+    }
+
+    private void reload() {
+        try {
+            Map<String, Long> loaded = productRepository.countByCategory();
+            synchronized (this) {
+                counts.clear();
+                counts.putAll(loaded);
+                publish();
+            }
+            reloads.increment();
+        } catch (RuntimeException e) {
+            reloadFailures.increment();
+            throw e;
+        }
+    }
+
+    private void applyDelta(String category, int delta) {
+        synchronized (this) {
+            adjust(category, delta);
+            publish();
+        }
+    }
+
+    // Caller holds the lock
+    private void adjust(String category, int delta) {
+        if (category == null || snapshot == null) {
+            // Not loaded yet; the load will include this change
+            return;
+        }
+        long count = counts.getOrDefault(category, 0L) + delta;
+        if (count > 0) {
+            counts.put(category, count);
+        } else {
+            counts.remove(category);
+        }
+    }
+
+    // Caller holds the lock
+    private void publish() {
+        List<String> names = new ArrayList<>(counts.size());
+        List<CategoryCount> categories = new ArrayList<>(counts.size());
+        CRC32 crc = new CRC32();
+        counts.forEach((category, count) -> {
+            names.add(category);
+            categories.add(new CategoryCount(category, count));
+            crc.update((category + "=" + count + "\n").getBytes(StandardCharsets.UTF_8));
+        });
+        snapshot = new Snapshot(List.copyOf(names), List.copyOf(categories), "\"" + Long.toHexString(crc.getValue()) + "\"");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Immutable view handed to readers. The ETag changes whenever a name or count does.
+     */
+    public record Snapshot(List<String> names, List<CategoryCount> categories, String etag) {
+    }
+}
@@ -0,0 +1,306 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.repository.CatalogChangeStream;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes cache invalidations from a MongoDB change stream on the products and
+ * reviews collections, so every write is seen: the service's own, seed scripts,
+ * shell edits and other writers. When enabled, {@link InvalidationBatcher} stops
+ * queueing product keys from the request path; this is the only producer for them.
+ *
+ * - products: one key per changed product, with the version from the post-image
+ *   (documents without a version count as 0); deletes carry a null version. Inserts,
+ *   deletes and changes to featured products also drop the featured namespace.
+ * - reviews: the product's cached review pages are dropped in Redis directly. Review
+ *   deletes carry no productId and are only counted; those pages expire with their TTL.
+ *
+ * Changes are read in batches (whatever the cursor has buffered, up to
+ * {@code max-keys}), collapsed like {@link InvalidationBatcher} collapses a window and
+ * sent with one Kafka round trip. The resume token is stored after the acks, so a
+ * restart replays at most one batch. One instance reads at a time, holding a lease in
+ * change_stream_state.
+ *
+ * Needs a replica set (Atlas is one). If the stored token has fallen off the oplog the
+ * stream restarts from now; changes in the gap expire with their TTL.
+ */
+@Service
+public class ChangeStreamInvalidator {
+    private static final String CAUSE = "change_stream";
+    // ChangeStreamHistoryLost, ChangeStreamFatalError
+    private static final Set<Integer> RESUME_FAILED = Set.of(286, 280);
+
+    private final CatalogChangeStream changeStream;
+    private final InvalidationBatcher invalidationBatcher;
+    private final ReviewPageCache reviewPageCache;
+    private final ExecutorService reader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "change-stream-invalidator");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String owner = UUID.randomUUID().toString();
+    private final Counter changes;
+    private final Counter unresolved;
+    private final Counter failures;
+    private final Counter resets;
+    private final Timer lag;
+    private volatile boolean running;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.invalidation.change-stream.enabled:false}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.change-stream.max-keys:500}")
+    private int maxKeys;
+
+    @Value("${cache.invalidation.change-stream.max-await-ms:1000}")
+    private long maxAwaitMs;
+
+    @Value("${cache.invalidation.change-stream.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${cache.invalidation.change-stream.retry-ms:5000}")
+    private long retryMs;
+
+    @Value("${cache.invalidation.change-stream.lease-ms:10000}")
+    private long leaseMs;
+
+    public ChangeStreamInvalidator(CatalogChangeStream changeStream,
+                                   InvalidationBatcher invalidationBatcher,
+                                   ReviewPageCache reviewPageCache,
+                                   MeterRegistry meterRegistry) {
+        this.changeStream = changeStream;
+        this.invalidationBatcher = invalidationBatcher;
+        this.reviewPageCache = reviewPageCache;
+        this.changes = Counter.builder("change_stream_events").register(meterRegistry);
+        this.unresolved = Counter.builder("change_stream_unresolved").register(meterRegistry);
+        this.failures = Counter.builder("change_stream_failures").register(meterRegistry);
+        this.resets = Counter.builder("change_stream_resets").register(meterRegistry);
+        // From the oldest change in a batch being committed to its event being acked
+        this.lag = Timer.builder("change_stream_lag")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (!"ttl_invalidate".equals(cacheMode) && !"write_through".equals(cacheMode)
+                || !invalidationBatcher.canPublish()) {
+            System.out.println("ChangeStreamInvalidator: disabled (needs ttl_invalidate/write_through and Kafka)");
+            return;
+        }
+        running = true;
+        reader.execute(this::run);
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (changeStream.tryAcquireLease(owner, leaseMs)) {
+                    tail();
+                } else {
+                    Thread.sleep(leaseMs / 2);
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                if (e instanceof MongoException mongoException && RESUME_FAILED.contains(mongoException.getCode())) {
+                    resets.increment();
+                    System.err.println("ChangeStreamInvalidator: cannot resume (" + e.getMessage()
+                            + "), restarting from now");
+                    changeStream.clearResumeToken(owner);
+                    continue;
+                }
+                failures.increment();
+                System.err.println("ChangeStreamInvalidator: stream failed, retrying in " + retryMs + "ms: "
+                        + e.getMessage());
+                try {
+                    Thread.sleep(retryMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void tail() throws Exception {
+        BsonDocument resumeToken = changeStream.loadResumeToken();
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor =
+                     changeStream.open(resumeToken, maxKeys, maxAwaitMs)) {
+            System.out.println("ChangeStreamInvalidator: watching products and reviews"
+                    + (resumeToken != null ? " from the stored resume token" : " from now"));
+            List<ChangeStreamDocument<Document>> batch = new ArrayList<>();
+            long leaseRenewAtMs = System.currentTimeMillis() + leaseMs / 2;
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null) {
+                    changes.increment();
+                    batch.add(change);
+                }
+                // Send once the cursor's buffer is drained, so batches follow the load
+                if (!batch.isEmpty() && (cursor.available() == 0 || batch.size() >= maxKeys)) {
+                    boolean reopen = publish(batch);
+                    BsonDocument token = batch.get(batch.size() - 1).getResumeToken();
+                    batch.clear();
+                    if (reopen) {
+                        changeStream.clearResumeToken(owner);
+                        return;
+                    }
+                    if (!changeStream.saveResumeToken(owner, token)) {
+                        return;
+                    }
+                }
+                if (System.currentTimeMillis() >= leaseRenewAtMs) {
+                    if (!changeStream.tryAcquireLease(owner, leaseMs)) {
+                        System.out.println("ChangeStreamInvalidator: lost the lease");
+                        return;
+                    }
+                    // Keep the stored position current while the collections are quiet
+                    BsonDocument idleToken = cursor.getResumeToken();
+                    if (batch.isEmpty() && idleToken != null) {
+                        changeStream.saveResumeToken(owner, idleToken);
+                    }
+                    leaseRenewAtMs = System.currentTimeMillis() + leaseMs / 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the invalidations for {@code batch} and waits for the acks. Returns true if
+     * the stream was invalidated (a watched collection was dropped or renamed) and has to
+     * be reopened.
+     */
+    private boolean publish(List<ChangeStreamDocument<Document>> batch) throws Exception {
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        Set<String> namespaces = new LinkedHashSet<>();
+        Set<String> reviewedProducts = new LinkedHashSet<>();
+        boolean reopen = false;
+        Instant since = null;
+
+        for (ChangeStreamDocument<Document> change : batch) {
+            Instant at = changedAt(change);
+            if (at != null && (since == null || at.isBefore(since))) {
+                since = at;
+            }
+            OperationType type = change.getOperationType();
+            if (type == OperationType.INVALIDATE) {
+                reopen = true;
+                continue;
+            }
+            String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+            String id = documentId(change);
+            if (collection == null || id == null) {
+                continue;
+            }
+            Document fullDocument = change.getFullDocument();
+            if ("products".equals(collection)) {
+                // An update whose post-image is gone was followed by a delete
+                Integer version = type == OperationType.DELETE || fullDocument == null ? null : versionOf(fullDocument);
+                if (versions.containsKey(id)) {
+                    Integer current = versions.get(id);
+                    versions.put(id, current == null || version == null ? null : Math.max(current, version));
+                } else {
+                    versions.put(id, version);
+                }
+                if (affectsFeatured(change)) {
+                    namespaces.add(FeaturedProductsCache.NAMESPACE);
+                }
+            } else if ("reviews".equals(collection)) {
+                Object productId = fullDocument != null ? fullDocument.get("productId") : null;
+                if (productId != null) {
+                    reviewedProducts.add(productId.toString());
+                } else {
+                    unresolved.increment();
+                }
+            }
+        }
+
+        // Redis is shared, so one instance dropping the pages is enough
+        reviewPageCache.invalidateAll(reviewedProducts);
+        if (!versions.isEmpty() || !namespaces.isEmpty()) {
+            Instant oldest = since != null ? since : Instant.now();
+            invalidationBatcher.publish(versions, namespaces, oldest, CAUSE).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+            lag.record(Duration.between(oldest, Instant.now()));
+        }
+        return reopen;
+    }
+
+    private static Integer versionOf(Document product) {
+        return product.get("version") instanceof Number number ? number.intValue() : 0;
+    }
+
+    // A deleted product's flag is unknown; otherwise only a change to a featured
+    // product or to the flag itself matters
+    private static boolean affectsFeatured(ChangeStreamDocument<Document> change) {
+        OperationType type = change.getOperationType();
+        if (type == OperationType.DELETE) {
+            return true;
+        }
+        Document fullDocument = change.getFullDocument();
+        if (fullDocument != null && Boolean.TRUE.equals(fullDocument.get("featured"))) {
+            return true;
+        }
+        return change.getUpdateDescription() != null && change.getUpdateDescription().getUpdatedFields() != null
+                && change.getUpdateDescription().getUpdatedFields().containsKey("featured");
+    }
+
+    private static String documentId(ChangeStreamDocument<Document> change) {
+        BsonDocument key = change.getDocumentKey();
+        BsonValue id = key != null ? key.get("_id") : null;
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : id.toString();
+    }
+
+    private static Instant changedAt(ChangeStreamDocument<Document> change) {
+        if (change.getWallTime() != null) {
+            return Instant.ofEpochMilli(change.getWallTime().getValue());
+        }
+        return change.getClusterTime() != null ? Instant.ofEpochSecond(change.getClusterTime().getTime()) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        reader.shutdownNow();
+    }
+}
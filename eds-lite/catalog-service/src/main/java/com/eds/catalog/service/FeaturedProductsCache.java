@@ -0,0 +1,212 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * The featured-products list, materialized in Redis as one pre-serialized JSON payload
+ * so a home-page load is a single GET with no Mongo query and no re-serialization.
+ *
+ * Writers drop the payload (and publish a "featured" namespace event on
+ * cache.invalidate for the other instances) only when a featured product changes in a
+ * way the list shows. The next read rebuilds it. A generation counter is bumped on
+ * every invalidation and a rebuild is only stored if the generation did not move while
+ * it was querying, so a list built from pre-write data cannot overwrite the invalidation.
+ *
+ * The payload has no {@code stock}: stock moves with every reservation, and only the
+ * per-product reads overlay the live reservation counters. Clients that show stock
+ * read it from {@code /products/{id}}.
+ */
+@Service
+public class FeaturedProductsCache {
+    public static final String NAMESPACE = "featured";
+
+    // v2: without stock, so payloads written by older instances are not served
+    private static final String PAYLOAD_KEY = "featuredProducts::payload:v2";
+    private static final String GENERATION_KEY = "featuredProducts::gen";
+
+    // Product fields that appear in the featured payload
+    private static final Set<String> DISPLAY_FIELDS = Set.of(
+            "featured", "price", "rating", "reviewCount", "name", "description", "images", "category");
+
+    // KEYS[1] = payload, KEYS[2] = generation
+    private static final byte[] INVALIDATE_SCRIPT = ("""
+            redis.call('INCR', KEYS[2])
+            return redis.call('DEL', KEYS[1])
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // KEYS[1] = payload, KEYS[2] = generation, ARGV[1] = generation read before the
+    // query, ARGV[2] = payload, ARGV[3] = ttl ms
+    private static final byte[] PUT_IF_GENERATION_SCRIPT = ("""
+            if (redis.call('GET', KEYS[2]) or '0') ~= ARGV[1] then
+              return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final ProductRepository productRepository;
+    private final InvalidationBatcher invalidationBatcher;
+    private final ObjectWriter payloadWriter;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter rebuildsDiscarded;
+    private final Counter invalidations;
+    private final Timer rebuildTimer;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory connectionFactory;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.featured.enabled:true}")
+    private boolean enabled;
+
+    // Invalidation keeps the payload fresh; the TTL is only a backstop
+    @Value("${cache.featured.ttl-ms:600000}")
+    private long ttlMs;
+
+    public FeaturedProductsCache(ProductRepository productRepository,
+                                 InvalidationBatcher invalidationBatcher,
+                                 ObjectMapper objectMapper,
+                                 MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.invalidationBatcher = invalidationBatcher;
+        this.payloadWriter = objectMapper.copy().addMixIn(Product.class, WithoutStock.class).writer();
+        this.hits = Counter.builder("featured_cache_hits").register(meterRegistry);
+        this.misses = Counter.builder("featured_cache_misses").register(meterRegistry);
+        this.rebuildsDiscarded = Counter.builder("featured_cache_rebuilds_discarded").register(meterRegistry);
+        this.invalidations = Counter.builder("featured_cache_invalidations").register(meterRegistry);
+        this.rebuildTimer = Timer.builder("featured_cache_rebuild_latency").register(meterRegistry);
+    }
+
+    /**
+     * Returns the featured products as a serialized JSON array.
+     */
+    public byte[] getPayload() {
+        if (!isActive()) {
+            return build();
+        }
+        byte[] cached = read();
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return rebuild();
+    }
+
+    /**
+     * A product changed. Drops the payload if the product is (or was) featured and a
+     * field the list shows changed.
+     */
+    public void onProductChanged(boolean wasFeatured, boolean isFeatured, Collection<String> changedFields, String cause) {
+        if (!wasFeatured && !isFeatured) {
+            return;
+        }
+        if (changedFields.stream().noneMatch(DISPLAY_FIELDS::contains)) {
+            return;
+        }
+        invalidate();
+        if ("ttl_invalidate".equals(cacheMode) || "write_through".equals(cacheMode)) {
+            invalidationBatcher.enqueueNamespace(NAMESPACE, cause);
+        }
+    }
+
+    /**
+     * Drops the payload. Called by writers and for "featured" events on cache.invalidate.
+     */
+    public void invalidate() {
+        if (!isActive()) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(INVALIDATE_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(PAYLOAD_KEY), bytes(GENERATION_KEY));
+            invalidations.increment();
+        } catch (Exception e) {
+            // The payload still expires with its TTL
+            System.err.println("Featured cache invalidation failed: " + e.getMessage());
+        }
+    }
+
+    // Concurrent misses in this JVM wait for one rebuild instead of all querying Mongo
+    private synchronized byte[] rebuild() {
+        byte[] cached = read();
+        if (cached != null) {
+            return cached;
+        }
+        String generation = readGeneration();
+        byte[] payload = rebuildTimer.record(this::build);
+        if (generation == null) {
+            return payload;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long stored = connection.scriptingCommands().eval(PUT_IF_GENERATION_SCRIPT, ReturnType.INTEGER, 2,
+                    bytes(PAYLOAD_KEY), bytes(GENERATION_KEY), bytes(generation), payload, bytes(String.valueOf(ttlMs)));
+            if (stored == null || stored == 0) {
+                rebuildsDiscarded.increment();
+            }
+        } catch (Exception e) {
+            System.err.println("Featured cache write failed: " + e.getMessage());
+        }
+        return payload;
+    }
+
+    private byte[] build() {
+        try {
+            return payloadWriter.writeValueAsBytes(productRepository.findByFeaturedTrue());
+        } catch (Exception e) {
+            throw new RuntimeException("Error serializing featured products", e);
+        }
+    }
+
+    private byte[] read() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            return connection.stringCommands().get(bytes(PAYLOAD_KEY));
+        } catch (Exception e) {
+            System.err.println("Featured cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Null if Redis is unavailable, in which case the rebuild is not stored
+    private String readGeneration() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] raw = connection.stringCommands().get(bytes(GENERATION_KEY));
+            return raw != null ? new String(raw, StandardCharsets.UTF_8) : "0";
+        } catch (Exception e) {
+            System.err.println("Featured cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isActive() {
+        return enabled && connectionFactory != null && !"none".equals(cacheMode);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @JsonIgnoreProperties("stock")
+    private abstract static class WithoutStock {
+    }
+}
@@ -0,0 +1,142 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.cache.TwoTierCache;
+import com.eds.catalog.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the products {@link HotKeyTracker} reports as hot from ever missing.
+ *
+ * Every refresh interval the hot ids are reloaded from Mongo with one $in query and
+ * written back to productById, which resets their Redis TTL before it can run out
+ * (refresh-ahead). On this instance they are also pinned in the near cache with
+ * pin-ttl-ms instead of the short L1 TTL. Ids that are no longer hot are unpinned and
+ * fall back to the normal TTLs.
+ *
+ * Invalidations still drop pinned copies right away; the next refresh pins the new
+ * version. A reload that read Mongo just before a write can re-pin the old version
+ * until the following refresh, the same window as early refresh.
+ */
+@Service
+public class HotKeyPinner {
+    private static final String CACHE_NAME = "productById";
+
+    private final HotKeyTracker hotKeyTracker;
+    private final ProductCacheLoader productCacheLoader;
+    private final CacheManager cacheManager;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hot-key-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter refreshedKeys;
+    private final Counter refreshFailures;
+    private final Counter unpinned;
+    private final Timer refreshTimer;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.hot-keys.pin.enabled:true}")
+    private boolean enabled;
+
+    // Must be longer than refresh-interval-ms, or pins lapse between refreshes
+    @Value("${cache.hot-keys.pin.ttl-ms:120000}")
+    private long pinTtlMs;
+
+    @Value("${cache.hot-keys.pin.refresh-interval-ms:5000}")
+    private long refreshIntervalMs;
+
+    public HotKeyPinner(HotKeyTracker hotKeyTracker,
+                        ProductCacheLoader productCacheLoader,
+                        CacheManager cacheManager,
+                        MeterRegistry meterRegistry) {
+        this.hotKeyTracker = hotKeyTracker;
+        this.productCacheLoader = productCacheLoader;
+        this.cacheManager = cacheManager;
+        this.refreshedKeys = Counter.builder("hot_key_refreshes").register(meterRegistry);
+        this.refreshFailures = Counter.builder("hot_key_refresh_failures").register(meterRegistry);
+        this.unpinned = Counter.builder("hot_key_unpins").register(meterRegistry);
+        this.refreshTimer = Timer.builder("hot_key_refresh_latency").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || !hotKeyTracker.isEnabled() || "none".equals(cacheMode)) {
+            return;
+        }
+        System.out.println("HotKeyPinner: refreshing hot products every " + refreshIntervalMs
+                + "ms (pin ttl " + pinTtlMs + "ms)");
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                refreshTimer.record(this::refresh);
+            } catch (Exception e) {
+                refreshFailures.increment();
+                System.err.println("HotKeyPinner: refresh failed: " + e.getMessage());
+            }
+        }, refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reloads and pins the current hot ids and unpins the ones that cooled down.
+     */
+    public void refresh() {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return;
+        }
+        List<String> hot = hotKeyTracker.hotKeys();
+        TwoTierCache nearCache = cache instanceof TwoTierCache twoTier ? twoTier : null;
+        if (nearCache != null) {
+            Set<String> hotSet = new HashSet<>(hot);
+            for (Object key : nearCache.pinnedKeys()) {
+                if (!hotSet.contains(key)) {
+                    nearCache.unpin(key);
+                    unpinned.increment();
+                }
+            }
+        }
+        if (hot.isEmpty()) {
+            return;
+        }
+
+        // Writes both tiers (and refreshes already-pinned copies) in one pipelined batch
+        Map<String, Product> loaded = productCacheLoader.loadAll(hot, cache);
+        refreshedKeys.increment(loaded.size());
+        if (nearCache == null) {
+            return;
+        }
+        Duration pinTtl = Duration.ofMillis(pinTtlMs);
+        for (String id : hot) {
+            Product product = loaded.get(id);
+            if (product != null) {
+                nearCache.pin(id, product, pinTtl);
+            } else {
+                // Deleted
+                nearCache.unpin(id);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
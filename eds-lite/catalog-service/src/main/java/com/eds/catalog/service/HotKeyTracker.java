@@ -0,0 +1,182 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.cache.CountMinSketch;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming heavy-hitter tracker for product reads: a count-min sketch estimates every
+ * id's read count and a bounded table keeps the ids with the highest estimates. The
+ * first top-k of them are the hot keys; the whole table is what CacheWarmer persists
+ * as the access-frequency snapshot.
+ *
+ * Counts are halved every decay interval, so an estimate is roughly the reads over the
+ * last couple of intervals and a product that stops trending drops out of the top-K.
+ * An id is "hot" when it is in the top-k and its estimate reaches min-count.
+ */
+@Component
+public class HotKeyTracker {
+    public record HotKey(String key, long estimate, boolean hot) {}
+
+    private final ConcurrentMap<String, Long> tracked = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "hot-key-decay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final MeterRegistry meterRegistry;
+    private CountMinSketch sketch;
+    // Smallest estimate in a full table; a new id must beat it to get in
+    private volatile long floor;
+
+    @Value("${cache.hot-keys.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.hot-keys.top-k:20}")
+    private int k;
+
+    // Ids tracked in total (>= top-k)
+    @Value("${cache.hot-keys.tracked:500}")
+    private int capacity;
+
+    @Value("${cache.hot-keys.min-count:100}")
+    private long minCount;
+
+    @Value("${cache.hot-keys.sketch-width:4096}")
+    private int sketchWidth;
+
+    @Value("${cache.hot-keys.sketch-depth:4}")
+    private int sketchDepth;
+
+    @Value("${cache.hot-keys.decay-interval-ms:10000}")
+    private long decayIntervalMs;
+
+    public HotKeyTracker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        capacity = Math.max(capacity, k);
+        Gauge.builder("hot_keys_tracked", tracked, Map::size).register(meterRegistry);
+        Gauge.builder("hot_keys_hot", this, tracker -> tracker.hotKeys().size()).register(meterRegistry);
+        if (!enabled) {
+            return;
+        }
+        sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                decay();
+            } catch (Exception e) {
+                System.err.println("HotKeyTracker: decay failed: " + e.getMessage());
+            }
+        }, decayIntervalMs, decayIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts one read of {@code key}. Cheap enough for every request: a few atomic
+     * increments, and a lock only when the key is about to enter the table.
+     */
+    public void record(String key) {
+        if (!enabled || key == null) {
+            return;
+        }
+        long estimate = sketch.add(key);
+        if (tracked.computeIfPresent(key, (id, previous) -> estimate) != null) {
+            return;
+        }
+        if (tracked.size() < capacity || estimate > floor) {
+            offer(key, estimate);
+        }
+    }
+
+    /**
+     * The ids currently considered hot, hottest first.
+     */
+    public List<String> hotKeys() {
+        List<String> hot = new ArrayList<>();
+        for (HotKey hotKey : topK()) {
+            if (hotKey.hot()) {
+                hot.add(hotKey.key());
+            }
+        }
+        return hot;
+    }
+
+    /**
+     * The top-k tracked ids, hottest first.
+     */
+    public List<HotKey> topK() {
+        List<HotKey> entries = snapshot();
+        return entries.subList(0, Math.min(k, entries.size()));
+    }
+
+    /**
+     * Every tracked id, hottest first.
+     */
+    public List<HotKey> snapshot() {
+        List<HotKey> entries = new ArrayList<>(tracked.size());
+        tracked.forEach((key, estimate) -> entries.add(new HotKey(key, estimate, false)));
+        entries.sort(Comparator.comparingLong(HotKey::estimate).reversed());
+        for (int i = 0; i < entries.size() && i < k; i++) {
+            HotKey entry = entries.get(i);
+            if (entry.estimate() >= minCount) {
+                entries.set(i, new HotKey(entry.key(), entry.estimate(), true));
+            }
+        }
+        return entries;
+    }
+
+    private synchronized void offer(String key, long estimate) {
+        if (tracked.size() >= capacity && estimate <= floor) {
+            return;
+        }
+        tracked.put(key, estimate);
+        if (tracked.size() > capacity) {
+            String coldest = null;
+            long coldestEstimate = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : tracked.entrySet()) {
+                if (entry.getValue() < coldestEstimate) {
+                    coldest = entry.getKey();
+                    coldestEstimate = entry.getValue();
+                }
+            }
+            tracked.remove(coldest);
+        }
+        updateFloor();
+    }
+
+    private synchronized void decay() {
+        sketch.halve();
+        tracked.replaceAll((key, estimate) -> estimate >>> 1);
+        tracked.values().removeIf(estimate -> estimate == 0);
+        updateFloor();
+    }
+
+    private void updateFloor() {
+        floor = tracked.size() < capacity ? 0 : tracked.values().stream().mapToLong(Long::longValue).min().orElse(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,282 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.CacheInvalidationEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes productById invalidations to Kafka in batches.
+ *
+ * Changed ids are collected for up to {@code window-ms} (or until {@code max-keys} ids
+ * are pending) and sent as one {@link CacheInvalidationEvent} with a per-key version
+ * map. Repeated changes to the same id inside a window collapse to the highest version;
+ * a delete (null version) wins. Sending happens on a background thread, so request
+ * threads never block on the acks=all producer.
+ *
+ * Whole derived payloads (e.g. the featured list) are invalidated by namespace: one
+ * event with {@code ns} set to the namespace, coalesced the same way.
+ *
+ * Batched events are sent without a record key. Ordering across partitions is not
+ * needed because consumers compare versions before evicting.
+ *
+ * With the outbox enabled, enqueued invalidations are written to Mongo instead (see
+ * {@link InvalidationOutbox}) and {@link OutboxRelay} sends them through
+ * {@link #publish}, which waits for the acks. With the change stream enabled,
+ * product keys are not queued here at all: {@link ChangeStreamInvalidator} publishes
+ * them from the oplog.
+ */
+@Service
+public class InvalidationBatcher {
+    private final InvalidationOutbox outbox;
+    private final ScheduledExecutorService sender = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "cache-invalidation-batcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Guarded by "this"
+    private Map<String, Integer> pending = new LinkedHashMap<>();
+    private Set<String> pendingNamespaces = new LinkedHashSet<>();
+    private String pendingCause;
+    private Instant pendingSince;
+    private boolean flushScheduled;
+
+    private final Counter invalidationsSent;
+    private final Counter batchesSent;
+    private final Counter sendFailures;
+    private final DistributionSummary batchKeys;
+
+    @Autowired(required = false)
+    private KafkaTemplate<String, CacheInvalidationEvent> kafkaTemplate;
+
+    @Value("${cache.invalidation.batch.enabled:true}")
+    private boolean batchEnabled;
+
+    @Value("${cache.invalidation.batch.window-ms:20}")
+    private long windowMs;
+
+    @Value("${cache.invalidation.batch.max-keys:500}")
+    private int maxKeys;
+
+    @Value("${cache.invalidation.change-stream.enabled:false}")
+    private boolean changeStreamEnabled;
+
+    public InvalidationBatcher(InvalidationOutbox outbox, MeterRegistry meterRegistry) {
+        this.outbox = outbox;
+        this.invalidationsSent = Counter.builder("invalidations_sent").register(meterRegistry);
+        this.batchesSent = Counter.builder("invalidation_batches_sent").register(meterRegistry);
+        this.sendFailures = Counter.builder("invalidation_send_failures").register(meterRegistry);
+        this.batchKeys = DistributionSummary.builder("invalidation_batch_keys")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queues an invalidation for {@code productId}. {@code version} is the version just
+     * written, or null when the product was deleted. Never blocks on Kafka. In outbox
+     * mode this is a Mongo insert that joins the caller's transaction, if any.
+     */
+    public void enqueue(String productId, Integer version, String cause) {
+        if (kafkaTemplate == null) {
+            System.out.println("Kafka not available, skipping cache invalidation event");
+            return;
+        }
+        if (changeStreamEnabled) {
+            return;
+        }
+        if (outbox.isEnabled()) {
+            outbox.append("product", productId, version, cause);
+            return;
+        }
+        if (!batchEnabled) {
+            Map<String, Integer> single = new LinkedHashMap<>();
+            single.put(productId, version);
+            send(single, Instant.now(), cause);
+            return;
+        }
+
+        boolean flushNow = false;
+        synchronized (this) {
+            trackCause(cause);
+            if (pending.containsKey(productId)) {
+                Integer current = pending.get(productId);
+                pending.put(productId, current == null || version == null ? null : Math.max(current, version));
+            } else {
+                pending.put(productId, version);
+            }
+
+            if (pending.size() >= maxKeys) {
+                flushNow = true;
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                schedule(windowMs);
+            }
+        }
+        if (flushNow) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Queues an invalidation of everything cached under namespace {@code ns}.
+     */
+    public void enqueueNamespace(String ns, String cause) {
+        if (kafkaTemplate == null) {
+            return;
+        }
+        if (outbox.isEnabled()) {
+            outbox.append(ns, ns, null, cause);
+            return;
+        }
+        if (!batchEnabled) {
+            sendNamespace(ns, Instant.now(), cause);
+            return;
+        }
+        synchronized (this) {
+            trackCause(cause);
+            pendingNamespaces.add(ns);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                schedule(windowMs);
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void trackCause(String cause) {
+        if (pending.isEmpty() && pendingNamespaces.isEmpty()) {
+            pendingSince = Instant.now();
+            pendingCause = cause;
+        } else if (!cause.equals(pendingCause)) {
+            pendingCause = "batch";
+        }
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            sender.schedule(this::flush, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down; shutdown() flushes what is left
+        }
+    }
+
+    private void flush() {
+        Map<String, Integer> batch;
+        Set<String> namespaces;
+        Instant since;
+        String cause;
+        synchronized (this) {
+            flushScheduled = false;
+            if (pending.isEmpty() && pendingNamespaces.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            namespaces = pendingNamespaces;
+            since = pendingSince;
+            cause = pendingCause;
+            pending = new LinkedHashMap<>();
+            pendingNamespaces = new LinkedHashSet<>();
+        }
+        if (!batch.isEmpty()) {
+            send(batch, since, cause);
+        }
+        for (String ns : namespaces) {
+            sendNamespace(ns, since, cause);
+        }
+    }
+
+    public boolean canPublish() {
+        return kafkaTemplate != null;
+    }
+
+    /**
+     * Sends one event for {@code versions} (if any) and one per namespace. The future
+     * completes once Kafka has acknowledged all of them.
+     */
+    CompletableFuture<Void> publish(Map<String, Integer> versions, Collection<String> namespaces,
+                                    Instant since, String cause) {
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        if (!versions.isEmpty()) {
+            sends.add(send(versions, since, cause));
+        }
+        for (String ns : namespaces) {
+            sends.add(sendNamespace(ns, since, cause));
+        }
+        return CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private CompletableFuture<?> send(Map<String, Integer> versions, Instant since, String cause) {
+        List<String> keys = new ArrayList<>(versions.keySet());
+        try {
+            // Single changes keep the original one-key shape (and record key) so older
+            // consumers handle them unchanged; they evict batched events unconditionally.
+            // ts is the oldest change so inconsistency_window includes the batching delay
+            CacheInvalidationEvent event;
+            CompletableFuture<?> result;
+            if (keys.size() == 1) {
+                event = new CacheInvalidationEvent("product", keys, versions.get(keys.get(0)), since, cause);
+                result = kafkaTemplate.send("cache.invalidate", keys.get(0), event).whenComplete(this::onSendComplete);
+            } else {
+                event = new CacheInvalidationEvent("product", keys, null, since, cause, versions);
+                result = kafkaTemplate.send("cache.invalidate", event).whenComplete(this::onSendComplete);
+            }
+            invalidationsSent.increment(keys.size());
+            batchesSent.increment();
+            batchKeys.record(keys.size());
+            return result;
+        } catch (Exception e) {
+            // The cached copies still expire with their TTL
+            sendFailures.increment();
+            System.err.println("Warning: Failed to publish cache invalidation for " + keys.size()
+                    + " products: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private CompletableFuture<?> sendNamespace(String ns, Instant since, String cause) {
+        try {
+            CacheInvalidationEvent event = new CacheInvalidationEvent(ns, List.of(ns), null, since, cause);
+            CompletableFuture<?> result = kafkaTemplate.send("cache.invalidate", ns, event)
+                    .whenComplete(this::onSendComplete);
+            batchesSent.increment();
+            return result;
+        } catch (Exception e) {
+            sendFailures.increment();
+            System.err.println("Warning: Failed to publish " + ns + " cache invalidation: " + e.getMessage());
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void onSendComplete(Object result, Throwable error) {
+        if (error != null) {
+            sendFailures.increment();
+            System.err.println("Warning: Cache invalidation event was not delivered: " + error.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        flush();
+    }
+}
@@ -0,0 +1,166 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.OutboxEvent;
+import com.eds.catalog.repository.OutboxRepository;
+import com.mongodb.MongoException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Writes cache invalidations to the outbox collection instead of sending them to Kafka
+ * from the request thread; {@link OutboxRelay} forwards them.
+ *
+ * With {@code transactional} on (needs a replica set, e.g. Atlas) writers wrap the
+ * entity change and its outbox document in {@link #inTransaction}, so either both are
+ * stored or neither. On a standalone mongod the outbox insert simply follows the
+ * entity write: a Kafka outage no longer loses anything, but a crash between the two
+ * writes can.
+ *
+ * Transactions that write a shared document (every review updates its product) abort
+ * with a WriteConflict when two of them overlap. {@link #inRetryingTransaction} runs
+ * the whole unit of work again with full-jitter backoff in that case.
+ */
+@Service
+public class InvalidationOutbox {
+    // Mongo's WriteConflict error code
+    private static final int WRITE_CONFLICT = 112;
+
+    private final OutboxRepository outboxRepository;
+    private final Counter appends;
+    private final Counter appendFailures;
+    private final MeterRegistry meterRegistry;
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${cache.invalidation.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.invalidation.outbox.transactional:false}")
+    private boolean transactional;
+
+    @Value("${catalog.update.max-attempts:3}")
+    private int maxAttempts;
+
+    // Full-jitter backoff: sleep a random time up to min(max-ms, backoff-ms * 2^(attempt-1))
+    @Value("${catalog.update.backoff-ms:10}")
+    private long backoffMs;
+
+    @Value("${catalog.update.backoff-max-ms:100}")
+    private long backoffMaxMs;
+
+    public InvalidationOutbox(OutboxRepository outboxRepository, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.meterRegistry = meterRegistry;
+        this.appends = Counter.builder("outbox_appends").register(meterRegistry);
+        this.appendFailures = Counter.builder("outbox_append_failures").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled && transactional) {
+            if (transactionManager == null) {
+                throw new IllegalStateException("cache.invalidation.outbox.transactional needs a MongoTransactionManager");
+            }
+            transactionTemplate = new TransactionTemplate(transactionManager);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs {@code work} in a Mongo transaction when transactional mode is on, so outbox
+     * documents it appends commit with its writes; otherwise just runs it.
+     */
+    public <T> T inTransaction(Supplier<T> work) {
+        if (transactionTemplate == null) {
+            return work.get();
+        }
+        return transactionTemplate.execute(status -> work.get());
+    }
+
+    /**
+     * {@link #inTransaction}, run again from the start when Mongo reports a write conflict
+     * (the aborted attempt's writes are gone, so {@code work} must redo all of them).
+     * Anything else goes straight back to the caller. Once {@code catalog.update.max-attempts}
+     * attempts conflicted, throws OptimisticLockingFailureException naming {@code resource}.
+     * Meters are {@code <operation>_attempts}, {@code <operation>_retries} and
+     * {@code <operation>_conflicts{reason=write_conflict}}.
+     */
+    public <T> T inRetryingTransaction(String operation, String resource, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = inTransaction(work);
+                attempts(operation).record(attempt);
+                return result;
+            } catch (RuntimeException e) {
+                if (!isWriteConflict(e)) {
+                    throw e;
+                }
+                Counter.builder(operation + "_conflicts").tag("reason", "write_conflict").register(meterRegistry).increment();
+                if (attempt >= maxAttempts) {
+                    attempts(operation).record(attempt);
+                    throw new OptimisticLockingFailureException(resource + " is being updated concurrently", e);
+                }
+                Counter.builder(operation + "_retries").register(meterRegistry).increment();
+                long capMs = Math.min(backoffMaxMs, backoffMs << (attempt - 1));
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(capMs + 1));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Update interrupted", ie);
+                }
+            }
+        }
+    }
+
+    private DistributionSummary attempts(String operation) {
+        return DistributionSummary.builder(operation + "_attempts").register(meterRegistry);
+    }
+
+    private static boolean isWriteConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MongoException mongoException
+                    && (mongoException.getCode() == WRITE_CONFLICT
+                        || mongoException.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends one invalidation. Inside a transaction a failure propagates and rolls the
+     * change back; outside one the change is already stored, so it is only logged and
+     * the cached copies expire with their TTL.
+     */
+    public void append(String ns, String key, Integer version, String cause) {
+        try {
+            outboxRepository.insert(new OutboxEvent(ns, key, version, cause, Instant.now()));
+            appends.increment();
+        } catch (RuntimeException e) {
+            appendFailures.increment();
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                throw e;
+            }
+            System.err.println("Warning: Failed to write " + ns + " invalidation for " + key + " to the outbox: "
+                    + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.OutboxEvent;
+import com.eds.catalog.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox collection to the cache.invalidate topic.
+ *
+ * Reads the oldest {@code batch-size} documents, collapses them the way
+ * {@link InvalidationBatcher} collapses a window (highest version per key, a delete
+ * wins, one event per namespace), waits for Kafka to acknowledge the events and only
+ * then deletes the documents. The next batch is read after that, so batches go out in
+ * write order. If Kafka is down nothing is deleted and the batch is retried after
+ * {@code retry-ms}.
+ *
+ * One instance relays at a time, holding a lease in outbox_leases. A relay that
+ * stalls past its lease can overlap with the next one; the duplicate events are
+ * harmless because consumers compare versions.
+ */
+@Service
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final InvalidationBatcher invalidationBatcher;
+    private final InvalidationOutbox invalidationOutbox;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final Counter relayed;
+    private final Counter failures;
+    private final DistributionSummary batchEvents;
+    private final MeterRegistry meterRegistry;
+    // Only touched on the relay thread
+    private long leaseRenewAtMs;
+    private long pausedUntilMs;
+
+    @Value("${cache.invalidation.outbox.relay.poll-interval-ms:20}")
+    private long pollIntervalMs;
+
+    @Value("${cache.invalidation.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cache.invalidation.outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${cache.invalidation.outbox.relay.retry-ms:1000}")
+    private long retryMs;
+
+    @Value("${cache.invalidation.outbox.relay.lease-ms:10000}")
+    private long leaseMs;
+
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       InvalidationBatcher invalidationBatcher,
+                       InvalidationOutbox invalidationOutbox,
+                       MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.invalidationBatcher = invalidationBatcher;
+        this.invalidationOutbox = invalidationOutbox;
+        this.meterRegistry = meterRegistry;
+        this.relayed = Counter.builder("outbox_relayed").register(meterRegistry);
+        this.failures = Counter.builder("outbox_relay_failures").register(meterRegistry);
+        this.batchEvents = DistributionSummary.builder("outbox_relay_batch_events")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!invalidationOutbox.isEnabled() || !invalidationBatcher.canPublish()) {
+            return;
+        }
+        // Age of the oldest document not yet relayed, as of the last poll
+        Gauge.builder("outbox_oldest_age_ms", oldestAgeMs, AtomicLong::get).register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(this::drainQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void drainQuietly() {
+        long now = System.currentTimeMillis();
+        if (now < pausedUntilMs) {
+            return;
+        }
+        try {
+            drain();
+        } catch (Exception e) {
+            failures.increment();
+            pausedUntilMs = now + retryMs;
+            System.err.println("OutboxRelay: relay failed, retrying in " + retryMs + "ms: " + e.getMessage());
+        }
+    }
+
+    private void drain() throws Exception {
+        while (holdsLease()) {
+            List<OutboxEvent> batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                oldestAgeMs.set(0);
+                return;
+            }
+            Instant oldest = batch.get(0).getCreatedAt();
+            oldestAgeMs.set(oldest != null ? System.currentTimeMillis() - oldest.toEpochMilli() : 0);
+
+            relay(batch);
+            outboxRepository.deleteAllById(batch.stream().map(OutboxEvent::getId).toList());
+            relayed.increment(batch.size());
+            batchEvents.record(batch.size());
+            if (batch.size() < batchSize) {
+                oldestAgeMs.set(0);
+                return;
+            }
+        }
+    }
+
+    private void relay(List<OutboxEvent> batch) throws Exception {
+        Map<String, Integer> versions = new LinkedHashMap<>();
+        Set<String> namespaces = new LinkedHashSet<>();
+        String cause = null;
+        Instant since = null;
+        for (OutboxEvent event : batch) {
+            if ("product".equals(event.getNs())) {
+                String productId = event.getKey();
+                Integer version = event.getVersion();
+                if (versions.containsKey(productId)) {
+                    Integer current = versions.get(productId);
+                    versions.put(productId, current == null || version == null ? null : Math.max(current, version));
+                } else {
+                    versions.put(productId, version);
+                }
+            } else {
+                namespaces.add(event.getNs());
+            }
+            cause = cause == null || cause.equals(event.getCause()) ? event.getCause() : "batch";
+            if (since == null && event.getCreatedAt() != null) {
+                since = event.getCreatedAt();
+            }
+        }
+        invalidationBatcher.publish(versions, namespaces, since != null ? since : Instant.now(), cause)
+                .get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Renews at half the lease; an instance without it checks again after that long
+    private boolean holdsLease() {
+        long now = System.currentTimeMillis();
+        if (now < leaseRenewAtMs) {
+            return true;
+        }
+        if (outboxRepository.tryAcquireRelayLease(owner, leaseMs)) {
+            leaseRenewAtMs = now + leaseMs / 2;
+            return true;
+        }
+        pausedUntilMs = now + leaseMs / 2;
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
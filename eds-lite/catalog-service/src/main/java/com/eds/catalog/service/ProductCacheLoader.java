@@ -0,0 +1,260 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.cache.BulkCache;
+import com.eds.catalog.cache.CacheEntry;
+import com.eds.catalog.cache.RefreshAwareCache;
+import com.eds.catalog.cache.SingleFlight;
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads productById cache misses from Mongo. Concurrent misses for the same id in this
+ * JVM are coalesced into a single load. With cache.single-flight.distributed enabled,
+ * instances also take a short Redis lease per id so only one of them hits Mongo while
+ * the others wait for the cache to be filled.
+ *
+ * Hits can also trigger a probabilistic early refresh (XFetch) on a small background
+ * pool, so hot entries are reloaded before their TTL runs out instead of all readers
+ * missing at once when it does.
+ */
+@Component
+public class ProductCacheLoader {
+    private static final DefaultRedisScript<Long> RELEASE_LEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end return 0",
+            Long.class);
+
+    private final ProductRepository productRepository;
+    private final SingleFlight<String, Product> singleFlight;
+    private final Counter leaseWaits;
+    private final Counter leaseWaitHits;
+    private final Counter leaseWaitTimeouts;
+    private final Counter earlyRefreshes;
+    private final Counter earlyRefreshesDropped;
+    private final Set<String> refreshesInFlight = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(
+            2, 2, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(256), r -> {
+                Thread thread = new Thread(r, "cache-early-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${cache.single-flight.distributed.enabled:false}")
+    private boolean distributedEnabled;
+
+    @Value("${cache.single-flight.distributed.lease-ms:2000}")
+    private long leaseMs;
+
+    @Value("${cache.single-flight.distributed.wait-ms:500}")
+    private long waitMs;
+
+    @Value("${cache.single-flight.distributed.poll-ms:20}")
+    private long pollMs;
+
+    @Value("${cache.early-refresh.enabled:false}")
+    private boolean earlyRefreshEnabled;
+
+    // XFetch beta: > 1 refreshes earlier, < 1 later
+    @Value("${cache.early-refresh.beta:1.0}")
+    private double earlyRefreshBeta;
+
+    // Used for entries that were cached without a measured compute time
+    @Value("${cache.early-refresh.default-compute-ms:50}")
+    private long defaultComputeMs;
+
+    public ProductCacheLoader(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.singleFlight = new SingleFlight<>("productById", meterRegistry);
+        this.leaseWaits = Counter.builder("single_flight_lease_waits").register(meterRegistry);
+        this.leaseWaitHits = Counter.builder("single_flight_lease_wait_hits").register(meterRegistry);
+        this.leaseWaitTimeouts = Counter.builder("single_flight_lease_wait_timeouts").register(meterRegistry);
+        this.earlyRefreshes = Counter.builder("cache_early_refreshes").register(meterRegistry);
+        this.earlyRefreshesDropped = Counter.builder("cache_early_refreshes_dropped").register(meterRegistry);
+    }
+
+    /**
+     * Loads the product after a cache miss and puts it into {@code cache}.
+     * Returns null if the product does not exist.
+     */
+    public Product load(String id, Cache cache) {
+        return singleFlight.execute(id, () -> loadAndCache(id, cache));
+    }
+
+    /**
+     * Loads several cache misses with one $in query and backfills the cache in one
+     * pipelined batch. Ids that do not exist are simply absent from the result.
+     * Unlike {@link #load} this is not coalesced with concurrent single-id loads.
+     */
+    public Map<String, Product> loadAll(List<String> ids, Cache cache) {
+        Map<String, Product> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return loaded;
+        }
+        long start = System.currentTimeMillis();
+        for (Product product : productRepository.findAllById(ids)) {
+            loaded.put(product.getId(), product);
+        }
+        // Spread the query time over the batch; it is what a single reload would cost
+        long computeMs = Math.max(1, (System.currentTimeMillis() - start) / ids.size());
+
+        if (cache != null && !loaded.isEmpty()) {
+            try {
+                if (cache instanceof BulkCache bulkCache) {
+                    bulkCache.putAll(loaded, computeMs);
+                } else {
+                    loaded.forEach((id, product) -> put(id, product, cache, computeMs));
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to backfill " + loaded.size() + " products: " + e.getMessage());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Called on a cache hit. Schedules a background reload if XFetch says this entry
+     * should be refreshed now; never blocks the caller.
+     */
+    public void maybeRefreshEarly(String id, Cache cache, Cache.ValueWrapper hit) {
+        if (!earlyRefreshEnabled || !(hit instanceof CacheEntry entry)
+                || !entry.shouldRefreshEarly(earlyRefreshBeta, defaultComputeMs)) {
+            return;
+        }
+        if (!refreshesInFlight.add(id)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    earlyRefreshes.increment();
+                    long start = System.currentTimeMillis();
+                    productRepository.findById(id).ifPresent(product ->
+                            put(id, product, cache, System.currentTimeMillis() - start));
+                } catch (Exception e) {
+                    System.err.println("Early refresh failed for product " + id + ": " + e.getMessage());
+                } finally {
+                    refreshesInFlight.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshesInFlight.remove(id);
+            earlyRefreshesDropped.increment();
+        }
+    }
+
+    /**
+     * Puts a just-saved product into the cache (write_through mode).
+     */
+    public void writeThrough(String id, Product product, Cache cache) {
+        put(id, product, cache, 0);
+    }
+
+    private Product loadAndCache(String id, Cache cache) {
+        String leaseToken = null;
+        if (distributedEnabled && stringRedisTemplate != null && cache != null) {
+            leaseToken = UUID.randomUUID().toString();
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(leaseKey(id), leaseToken, Duration.ofMillis(leaseMs));
+            if (!Boolean.TRUE.equals(acquired)) {
+                leaseToken = null;
+                Product filled = awaitFill(id, cache);
+                if (filled != null) {
+                    return filled;
+                }
+                // The lease holder was too slow (or died); load ourselves
+            }
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            Product product = productRepository.findById(id).orElse(null);
+            if (product != null && cache != null) {
+                put(id, product, cache, System.currentTimeMillis() - start);
+            }
+            return product;
+        } finally {
+            if (leaseToken != null) {
+                releaseLease(id, leaseToken);
+            }
+        }
+    }
+
+    /**
+     * Another instance holds the lease: poll the cache until it shows up or we give up.
+     */
+    private Product awaitFill(String id, Cache cache) {
+        leaseWaits.increment();
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(pollMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Cache.ValueWrapper valueWrapper = cache.get(id);
+            if (valueWrapper != null && valueWrapper.get() != null) {
+                leaseWaitHits.increment();
+                return (Product) valueWrapper.get();
+            }
+        }
+        leaseWaitTimeouts.increment();
+        return null;
+    }
+
+    private void put(String id, Product product, Cache cache, long computeMs) {
+        try {
+            // Record the compute time with the entry so later hits can run XFetch
+            if (cache instanceof RefreshAwareCache refreshAwareCache) {
+                long measured = computeMs > 0 ? computeMs : defaultComputeMs;
+                refreshAwareCache.put(id, product, measured);
+            } else {
+                cache.put(id, product);
+            }
+            System.out.println("Cached product " + id + " with version " + product.getVersion());
+        } catch (Exception e) {
+            System.err.println("Failed to cache product " + id + ": " + e.getMessage());
+        }
+    }
+
+    private void releaseLease(String id, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_LEASE_SCRIPT, List.of(leaseKey(id)), token);
+        } catch (Exception e) {
+            // The lease expires on its own
+            System.err.println("Failed to release load lease for product " + id + ": " + e.getMessage());
+        }
+    }
+
+    private static String leaseKey(String id) {
+        return "productById::" + id + "::lock";
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,295 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.cache.BloomFilter;
+import com.eds.catalog.repository.ProductRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "this product does not exist" without going to Redis or Mongo, so deleted
+ * and made-up ids (crawlers, stale links) stop reaching the database.
+ *
+ * Two layers:
+ * - A Bloom filter of every product id, rebuilt from Mongo periodically (ids cannot
+ *   be removed from it, so deleted ones linger until the next rebuild). Creates add to
+ *   it here, and creates on other instances arrive through the per-instance
+ *   cache.invalidate listener. Because of that it is only used when invalidations are
+ *   published and the L1 listener runs, and the first build starts only once that
+ *   listener has its partitions: creates published before then are not delivered to
+ *   it, but are in Mongo by the time the scan reads it.
+ *   Even then a create can be in Mongo before its event gets here (the scan already
+ *   past it, outbox or Kafka lag). So for {@code verify-ms} after each rebuild, and
+ *   after any invalidation that arrived later than that, a "no" from the filter is
+ *   checked in Mongo instead of trusted; the negative cache then absorbs repeats.
+ * - A short-TTL negative cache of ids that passed the filter but were not in Mongo
+ *   (false positives, deleted products). Creates drop their id from it.
+ *
+ * A read that misses Mongo while a create is running could otherwise cache a negative
+ * for the new product, so negatives are only stored if no create was seen since the
+ * read started.
+ */
+@Service
+public class ProductIdFilter {
+    private final ProductRepository productRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "product-id-filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicLong createEpoch = new AtomicLong();
+    private final AtomicBoolean listenerAssigned = new AtomicBoolean();
+    private final Counter rejections;
+    private final Counter verifications;
+    private final Counter falsePositives;
+    private final Counter negativeHits;
+    private final Counter negativePuts;
+    private final Counter rebuilds;
+    private final Counter rebuildFailures;
+    private final MeterRegistry meterRegistry;
+    private Cache<String, Boolean> negatives;
+    // Null until the first build finishes; until then nothing is rejected
+    private volatile BloomFilter filter;
+    // Until then a "no" from the filter is checked in Mongo
+    private volatile long verifyUntilMs;
+    private volatile boolean enabled;
+    // Set while a rebuild is streaming ids, so creates land in both filters
+    private BloomFilter building;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.l1.enabled:true}")
+    private boolean l1Enabled;
+
+    @Value("${cache.product-filter.enabled:true}")
+    private boolean filterEnabled;
+
+    @Value("${cache.product-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    // Sized for max(this, 2x the current product count) ids
+    @Value("${cache.product-filter.min-expected-ids:100000}")
+    private long minExpectedIds;
+
+    @Value("${cache.product-filter.rebuild-interval-ms:3600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${cache.product-filter.retry-ms:30000}")
+    private long retryMs;
+
+    @Value("${cache.product-filter.verify-ms:10000}")
+    private long verifyMs;
+
+    @Value("${cache.negative.enabled:true}")
+    private boolean negativeEnabled;
+
+    @Value("${cache.negative.ttl-ms:30000}")
+    private long negativeTtlMs;
+
+    @Value("${cache.negative.maximum-size:100000}")
+    private long negativeMaximumSize;
+
+    public ProductIdFilter(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.meterRegistry = meterRegistry;
+        this.rejections = Counter.builder("product_filter_rejections").register(meterRegistry);
+        this.verifications = Counter.builder("product_filter_verifications").register(meterRegistry);
+        this.falsePositives = Counter.builder("product_filter_false_positives").register(meterRegistry);
+        this.negativeHits = Counter.builder("negative_cache_hits").register(meterRegistry);
+        this.negativePuts = Counter.builder("negative_cache_puts").register(meterRegistry);
+        this.rebuilds = Counter.builder("product_filter_rebuilds").register(meterRegistry);
+        this.rebuildFailures = Counter.builder("product_filter_rebuild_failures").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        negatives = Caffeine.newBuilder()
+                .maximumSize(negativeMaximumSize)
+                .expireAfterWrite(Duration.ofMillis(negativeTtlMs))
+                .build();
+        Gauge.builder("product_filter_expected_fpp", this,
+                f -> f.filter != null ? f.filter.expectedFalsePositiveProbability() : 0).register(meterRegistry);
+        // Of the ids that do not exist, the share the filter let through
+        Gauge.builder("product_filter_observed_fpp", this, f -> {
+            double passed = f.falsePositives.count();
+            double total = passed + f.rejections.count();
+            return total > 0 ? passed / total : 0;
+        }).register(meterRegistry);
+        Gauge.builder("product_filter_ids", this, f -> f.filter != null ? f.filter.insertions() : 0).register(meterRegistry);
+        Gauge.builder("negative_cache_size", this, f -> f.negatives.estimatedSize()).register(meterRegistry);
+
+        if (!filterEnabled || "none".equals(cacheMode) || !publishesInvalidations() || !l1Enabled) {
+            System.out.println("ProductIdFilter: Bloom filter disabled (needs invalidation events and the L1 listener)");
+            return;
+        }
+        // Without spring.cache.type=redis there is no listener and this never happens
+        enabled = true;
+        System.out.println("ProductIdFilter: Bloom filter waits for the L1 listener's partitions");
+    }
+
+    /**
+     * The per-instance cache.invalidate listener has its partitions: from here on it sees
+     * every create made elsewhere, so the first build can start.
+     */
+    public void onL1ListenerAssigned() {
+        if (enabled && listenerAssigned.compareAndSet(false, true)) {
+            scheduler.execute(this::rebuildAndReschedule);
+        }
+    }
+
+    /**
+     * True if {@code id} is certainly not a product, from the Bloom filter or the
+     * negative cache. Does no I/O.
+     */
+    public boolean isKnownMissing(String id) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(id)) {
+            if (System.currentTimeMillis() >= verifyUntilMs) {
+                rejections.increment();
+                return true;
+            }
+            verifications.increment();
+        }
+        if (negativesActive() && negatives.getIfPresent(id) != null) {
+            negativeHits.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Call before looking an id up in Mongo; pass the result to {@link #recordMissing}.
+     */
+    public long beginLoad() {
+        return createEpoch.get();
+    }
+
+    /**
+     * Mongo did not have {@code id}: count the false positive and cache the negative.
+     */
+    public void recordMissing(String id, long epoch) {
+        BloomFilter current = filter;
+        if (current != null && current.mightContain(id)) {
+            falsePositives.increment();
+        }
+        if (!negativesActive()) {
+            return;
+        }
+        negatives.put(id, Boolean.TRUE);
+        negativePuts.increment();
+        // A create that started before the put went in may not have seen it
+        if (createEpoch.get() != epoch) {
+            negatives.invalidate(id);
+        }
+    }
+
+    public void onProductCreated(String id) {
+        createEpoch.incrementAndGet();
+        add(id);
+        negatives.invalidate(id);
+    }
+
+    public void onProductDeleted(String id) {
+        if (negativesActive()) {
+            negatives.put(id, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Products changed on some instance (cache.invalidate). Created ones may be among
+     * them; adding an id that already exists, or was deleted, is harmless. {@code oldest}
+     * is when the oldest of the writes happened, if known: events that late mean creates
+     * may still be on their way, so filter answers are verified for a while.
+     */
+    public void onProductsChanged(Collection<String> ids, Instant oldest) {
+        long now = System.currentTimeMillis();
+        if (oldest != null && now - oldest.toEpochMilli() > verifyMs) {
+            verifyUntilMs = Math.max(verifyUntilMs, now + verifyMs);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        createEpoch.incrementAndGet();
+        for (String id : ids) {
+            add(id);
+            negatives.invalidate(id);
+        }
+    }
+
+    private synchronized void add(String id) {
+        if (filter != null) {
+            filter.add(id);
+        }
+        if (building != null) {
+            building.add(id);
+        }
+    }
+
+    private void rebuildAndReschedule() {
+        long delay = rebuildIntervalMs;
+        try {
+            rebuild();
+        } catch (Exception e) {
+            rebuildFailures.increment();
+            System.err.println("ProductIdFilter: rebuild failed: " + e.getMessage());
+            if (filter == null) {
+                delay = retryMs;
+            }
+        }
+        if (!scheduler.isShutdown()) {
+            scheduler.schedule(this::rebuildAndReschedule, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        long expected = Math.max(minExpectedIds, productRepository.estimatedProductCount() * 2);
+        BloomFilter next = new BloomFilter(expected, falsePositiveRate);
+        synchronized (this) {
+            building = next;
+        }
+        try {
+            productRepository.forEachProductId(next::add);
+            synchronized (this) {
+                filter = next;
+                verifyUntilMs = System.currentTimeMillis() + verifyMs;
+            }
+        } finally {
+            synchronized (this) {
+                building = null;
+            }
+        }
+        rebuilds.increment();
+        System.out.println("ProductIdFilter: built filter of " + next.insertions() + " ids in "
+                + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    private boolean negativesActive() {
+        return negativeEnabled && !"none".equals(cacheMode);
+    }
+
+    private boolean publishesInvalidations() {
+        return "ttl_invalidate".equals(cacheMode) || "write_through".equals(cacheMode);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -1,13 +1,15 @@
 package com.eds.catalog.service;
 
-import com.eds.catalog.model.CacheInvalidationEvent;
+import com.eds.catalog.cache.BulkCache;
 import com.eds.catalog.model.Product;
+import com.eds.catalog.model.ProductBatchResponse;
 import com.eds.catalog.model.ProductCreateRequest;
 import com.eds.catalog.model.ProductUpdateRequest;
 import com.eds.catalog.model.ProductSearchRequest;
 import com.eds.catalog.model.ProductSearchResponse;
 import com.eds.catalog.repository.ProductRepository;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,39 +17,87 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ProductService {
     private final ProductRepository productRepository;
-    private final Counter invalidationsSent;
-    private final Counter staleReadsDetected;
     private final Counter cacheHits;
     private final Counter cacheMisses;
+    private final Counter writeThroughPuts;
     private final Timer getProductTimer;
+    private final Timer getProductsBatchTimer;
+    private final Timer updateProductTimer;
+    private final Counter updateConflicts;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary batchHitRatio;
     private final CacheManager cacheManager;
-    
-    @org.springframework.beans.factory.annotation.Autowired(required = false)
-    private KafkaTemplate<String, CacheInvalidationEvent> kafkaTemplate;
+    private final ProductCacheLoader productCacheLoader;
+    private final StaleReadAuditor staleReadAuditor;
+    private final InvalidationBatcher invalidationBatcher;
+    private final SearchResultCache searchResultCache;
+    private final CategoryCatalog categoryCatalog;
+    private final FeaturedProductsCache featuredProductsCache;
+    private final StockReservationService stockReservationService;
+    private final HotKeyTracker hotKeyTracker;
+    private final ProductIdFilter productIdFilter;
+    private final InvalidationOutbox invalidationOutbox;
     
     @Value("${cache.mode:ttl_invalidate}")
     private String cacheMode;
 
     public ProductService(ProductRepository productRepository,
                          MeterRegistry meterRegistry,
-                         CacheManager cacheManager) {
+                         CacheManager cacheManager,
+                         ProductCacheLoader productCacheLoader,
+                         StaleReadAuditor staleReadAuditor,
+                         InvalidationBatcher invalidationBatcher,
+                         SearchResultCache searchResultCache,
+                         CategoryCatalog categoryCatalog,
+                         FeaturedProductsCache featuredProductsCache,
+                         StockReservationService stockReservationService,
+                         HotKeyTracker hotKeyTracker,
+                         ProductIdFilter productIdFilter,
+                         InvalidationOutbox invalidationOutbox) {
         this.productRepository = productRepository;
         this.cacheManager = cacheManager;
-        this.invalidationsSent = Counter.builder("invalidations_sent").register(meterRegistry);
-        this.staleReadsDetected = Counter.builder("stale_reads_detected").register(meterRegistry);
+        this.productCacheLoader = productCacheLoader;
+        this.staleReadAuditor = staleReadAuditor;
+        this.invalidationBatcher = invalidationBatcher;
+        this.searchResultCache = searchResultCache;
+        this.categoryCatalog = categoryCatalog;
+        this.featuredProductsCache = featuredProductsCache;
+        this.stockReservationService = stockReservationService;
+        this.hotKeyTracker = hotKeyTracker;
+        this.productIdFilter = productIdFilter;
+        this.invalidationOutbox = invalidationOutbox;
         this.cacheHits = Counter.builder("cache_hits").register(meterRegistry);
         this.cacheMisses = Counter.builder("cache_misses").register(meterRegistry);
+        this.writeThroughPuts = Counter.builder("cache_write_through_puts").register(meterRegistry);
         this.getProductTimer = Timer.builder("get_product_latency").register(meterRegistry);
+        this.getProductsBatchTimer = Timer.builder("get_products_batch_latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("product_batch_size").register(meterRegistry);
+        this.updateProductTimer = Timer.builder("update_product_latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.updateConflicts = Counter.builder("product_update_conflicts").tag("reason", "expected_version").register(meterRegistry);
+        this.batchHitRatio = DistributionSummary.builder("product_batch_cache_hit_ratio")
+                .publishPercentiles(0.5)
+                .register(meterRegistry);
     }
 
     @Cacheable(value = "productById", key = "#id", unless = "#result == null")
@@ -65,6 +115,13 @@ public class ProductService {
     public Product getProductWithCacheMetrics(String id) {
         try {
             System.out.println("=== getProductWithCacheMetrics called for id: " + id + " ===");
+            hotKeyTracker.record(id);
+
+            // Deleted and made-up ids are answered without any I/O
+            if (productIdFilter.isKnownMissing(id)) {
+                System.out.println("Product " + id + " is known to be missing");
+                return null;
+            }
             
             // Simplified version without timer to isolate the issue
             Cache cache = cacheManager.getCache("productById");
@@ -79,16 +136,15 @@ public class ProductService {
                         cacheHits.increment();
                         System.out.println("Cache HIT for product " + id);
                         
-                        // Check for stale reads if caching is enabled
-                        if (!"none".equals(System.getenv().getOrDefault("CACHE_MODE", "ttl_invalidate"))) {
-                            Product dbProduct = productRepository.findById(id).orElse(null);
-                            if (dbProduct != null && !dbProduct.getVersion().equals(cachedProduct.getVersion())) {
-                                staleReadsDetected.increment();
-                                System.out.println("Stale read detected for product " + id);
-                            }
-                        }
+                        // Stale-read detection is sampled and checked asynchronously;
+                        // the hit path itself never goes to Mongo
+                        staleReadAuditor.recordHit(id, cachedProduct.getVersion());
+
+                        // Probabilistically reload entries that are close to expiry
+                        productCacheLoader.maybeRefreshEarly(id, cache, valueWrapper);
                         
-                        return cachedProduct;
+                        // Stock comes from the reservation counter, not the cached copy
+                        return stockReservationService.withLiveStock(cachedProduct);
                     }
                 } catch (Exception e) {
                     System.err.println("Cache read error for product " + id + ": " + e.getMessage());
@@ -96,30 +152,20 @@ public class ProductService {
                 }
             }
             
-            // Cache miss - get from database and cache it
+            // Cache miss - load from database and cache it. Concurrent misses for the
+            // same id share a single load (see ProductCacheLoader)
             System.out.println("Cache MISS for product " + id);
             cacheMisses.increment();
-            Product product = productRepository.findById(id).orElse(null);
+            long loadEpoch = productIdFilter.beginLoad();
+            Product product = productCacheLoader.load(id, cache);
             
             if (product == null) {
                 System.out.println("Product " + id + " not found in database");
+                productIdFilter.recordMissing(id, loadEpoch);
                 return null;
             }
             
-            System.out.println("Found product " + id + " in database");
-            
-            // Cache the result if we got one
-            if (cache != null) {
-                try {
-                    cache.put(id, product);
-                    System.out.println("Cached product " + id + " with version " + product.getVersion());
-                } catch (Exception e) {
-                    System.err.println("Failed to cache product " + id + ": " + e.getMessage());
-                    e.printStackTrace();
-                }
-            }
-            
-            return product;
+            return stockReservationService.withLiveStock(product);
         } catch (Exception e) {
             System.err.println("=== ERROR in getProductWithCacheMetrics for id: " + id + " ===");
             e.printStackTrace();
@@ -127,135 +173,216 @@ public class ProductService {
         }
     }
 
-    @CacheEvict(value = "productById", key = "#id")
-    public Product updateProduct(String id, ProductUpdateRequest request) {
-        // Retry logic for optimistic locking
-        // Note: @Transactional removed to allow fresh reads on retry
-        int maxRetries = 5;
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+    /**
+     * Resolves many products at once: one multi-get against productById, one $in query
+     * for whatever missed, and a pipelined backfill. Products come back in request order
+     * (duplicates collapsed); unknown ids are listed in notFound.
+     */
+    public ProductBatchResponse getProductsByIds(List<String> ids) {
+        long startNanos = System.nanoTime();
+        List<String> requestedIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        requestedIds.forEach(hotKeyTracker::record);
+        // Known-missing ids skip the cache and Mongo altogether
+        List<String> uniqueIds = new ArrayList<>(requestedIds.size());
+        for (String id : requestedIds) {
+            if (!productIdFilter.isKnownMissing(id)) {
+                uniqueIds.add(id);
+            }
+        }
+        Cache cache = cacheManager.getCache("productById");
+
+        Product[] resolved = new Product[uniqueIds.size()];
+        int hits = 0;
+        if (cache != null) {
             try {
-                // CRITICAL: Clear cache before fetching to ensure we get fresh data from database
-                if (cacheManager != null) {
-                    var cache = cacheManager.getCache("productById");
-                    if (cache != null) {
-                        cache.evict(id);
-                        System.out.println("Cache cleared for product " + id + " on attempt " + attempt);
+                List<Cache.ValueWrapper> wrappers;
+                if (cache instanceof BulkCache bulkCache) {
+                    wrappers = bulkCache.getAll(uniqueIds);
+                } else {
+                    wrappers = new ArrayList<>(uniqueIds.size());
+                    for (String id : uniqueIds) {
+                        wrappers.add(cache.get(id));
                     }
                 }
-                
-                // Fetch fresh product from database each attempt (bypassing cache)
-                // Using repository directly ensures we get the latest version from MongoDB
-                Product product = productRepository.findById(id)
-                        .orElseThrow(() -> new RuntimeException("Product not found: " + id));
-
-                int currentVersion = product.getVersion();
-                System.out.println("Attempt " + attempt + ": Fetched from DB - Version: " + currentVersion + ", Price: " + product.getPrice() + ", Stock: " + product.getStock());
-
-                // Update fields
-                if (request.getName() != null) product.setName(request.getName());
-                if (request.getDescription() != null) product.setDescription(request.getDescription());
-                if (request.getPrice() != null) product.setPrice(request.getPrice());
-                if (request.getStock() != null) product.setStock(request.getStock());
-                if (request.getCategory() != null) product.setCategory(request.getCategory());
-                if (request.getImages() != null) product.setImages(request.getImages());
-
-                // Don't manually increment version - Spring Data's @Version annotation handles this automatically
-                product.setUpdatedAt(Instant.now());
-
-                System.out.println("Attempt " + attempt + ": Trying to save - Current version: " + currentVersion + " (Spring will auto-increment)");
-
-                // Save - this may throw exception if version changed
-                Product saved = productRepository.save(product);
-                
-                System.out.println("Attempt " + attempt + ": Save successful! Saved version: " + saved.getVersion());
-                
-                System.out.println("Update successful on attempt " + attempt + "! New version: " + saved.getVersion());
-                
-                // Evict cache manually since we removed @Transactional
-                // (CacheEvict annotation still works, but we do it explicitly too)
-                
-                // Publish cache invalidation event
-                // Wrap in try-catch to prevent Kafka errors from breaking the update
-                if ("ttl_invalidate".equals(cacheMode)) {
-                    try {
-                        publishCacheInvalidation(id, saved.getVersion());
-                    } catch (Exception e) {
-                        // Log but don't fail the update if Kafka is down
-                        System.err.println("Warning: Failed to publish cache invalidation event: " + e.getMessage());
+                for (int i = 0; i < uniqueIds.size(); i++) {
+                    Cache.ValueWrapper valueWrapper = wrappers.get(i);
+                    if (valueWrapper != null && valueWrapper.get() instanceof Product cachedProduct) {
+                        resolved[i] = cachedProduct;
+                        hits++;
+                        staleReadAuditor.recordHit(uniqueIds.get(i), cachedProduct.getVersion());
+                        productCacheLoader.maybeRefreshEarly(uniqueIds.get(i), cache, valueWrapper);
                     }
                 }
-                
-                return saved;
             } catch (Exception e) {
-                String errorMsg = e.getMessage() != null ? e.getMessage() : "";
-                boolean isVersionConflict = errorMsg.contains("Cannot save entity") && 
-                                          errorMsg.contains("Has it been modified meanwhile");
-                
-                System.out.println("Exception on attempt " + attempt + ": " + e.getClass().getSimpleName());
-                System.out.println("Full error: " + errorMsg);
-                
-                // Double-check what's actually in the database right now
-                try {
-                    // Clear cache again before checking
-                    if (cacheManager != null) {
-                        var cache = cacheManager.getCache("productById");
-                        if (cache != null) {
-                            cache.evict(id);
-                        }
-                    }
-                    Product dbCheck = productRepository.findById(id).orElse(null);
-                    if (dbCheck != null) {
-                        System.out.println("Database check: Actual version in DB is " + dbCheck.getVersion());
-                    }
-                } catch (Exception checkEx) {
-                    System.out.println("Could not verify database: " + checkEx.getMessage());
-                }
-                
-                // Check if it's an optimistic locking or version conflict error
-                if (e instanceof org.springframework.dao.OptimisticLockingFailureException || isVersionConflict) {
-                    System.out.println("Caught version conflict on attempt " + attempt + " of " + maxRetries);
-                    if (attempt == maxRetries) {
-                        throw new RuntimeException("Product was modified by another operation. Please try again.");
-                    }
-                    // Wait longer before retrying to allow other operations to complete
-                    try {
-                        Thread.sleep(100 * attempt); // Exponential backoff: 100ms, 200ms, 300ms, 400ms, 500ms
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new RuntimeException("Update interrupted", ie);
-                    }
-                } else {
-                    // Not a version conflict, rethrow immediately
-                    System.out.println("Not a version conflict - rethrowing");
-                    if (e instanceof RuntimeException) {
-                        throw (RuntimeException) e;
-                    } else {
-                        throw new RuntimeException("Error updating product: " + errorMsg, e);
-                    }
+                // Fall through and load everything from Mongo
+                System.err.println("Cache batch read error for " + uniqueIds.size() + " products: " + e.getMessage());
+            }
+        }
+        List<String> missedIds = new ArrayList<>();
+        for (int i = 0; i < uniqueIds.size(); i++) {
+            if (resolved[i] == null) {
+                missedIds.add(uniqueIds.get(i));
+            }
+        }
+
+        long loadEpoch = productIdFilter.beginLoad();
+        Map<String, Product> loaded = productCacheLoader.loadAll(missedIds, cache);
+        for (String id : missedIds) {
+            if (!loaded.containsKey(id)) {
+                productIdFilter.recordMissing(id, loadEpoch);
+            }
+        }
+        Map<String, Product> found = new HashMap<>();
+        for (int i = 0; i < uniqueIds.size(); i++) {
+            Product product = resolved[i] != null ? resolved[i] : loaded.get(uniqueIds.get(i));
+            if (product != null) {
+                found.put(uniqueIds.get(i), product);
+            }
+        }
+        List<Product> products = new ArrayList<>(found.size());
+        List<String> notFound = new ArrayList<>();
+        for (String id : requestedIds) {
+            Product product = found.get(id);
+            if (product != null) {
+                products.add(product);
+            } else {
+                notFound.add(id);
+            }
+        }
+
+        cacheHits.increment(hits);
+        cacheMisses.increment(missedIds.size());
+        batchSize.record(requestedIds.size());
+        if (!uniqueIds.isEmpty()) {
+            batchHitRatio.record((double) hits / uniqueIds.size());
+        }
+        products = stockReservationService.withLiveStock(products);
+        getProductsBatchTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return new ProductBatchResponse(products, notFound);
+    }
+
+    // Cache eviction (or write-through) is done explicitly after the save; a @CacheEvict
+    // here would run after the method returns and throw away a write-through put
+    public Product updateProduct(String id, ProductUpdateRequest request) {
+        long startNanos = System.nanoTime();
+        try {
+            Instant updatedAt = Instant.now();
+            // One findAndModify: $set the request's fields and $inc the version. It returns
+            // the previous document, which is all we need to know what changed. The
+            // invalidation is queued with it (in outbox mode, in the same transaction).
+            // An absolute stock write moves the reservation counters to a new stock epoch
+            // first, and stores that epoch with the stock so older sales are not synced on top.
+            Long stockEpoch = request.getStock() != null
+                    ? stockReservationService.beginStockSet(id, request.getStock()) : null;
+            Product product;
+            try {
+                product = applyUpdateWithRetry(id, request, updatedAt, stockEpoch);
+            } catch (RuntimeException e) {
+                stockReservationService.abortStockSet(id, stockEpoch);
+                throw e;
+            }
+            if (product == null) {
+                stockReservationService.abortStockSet(id, stockEpoch);
+                if (request.getExpectedVersion() != null && productRepository.existsById(id)) {
+                    updateConflicts.increment();
+                    throw new OptimisticLockingFailureException("Product " + id + " is no longer at version "
+                            + request.getExpectedVersion());
                 }
+                throw new RuntimeException("Product not found: " + id);
             }
+
+            // Remember what changes so only the affected search pages are dropped
+            String previousCategory = product.getCategory();
+            boolean wasFeatured = product.isFeatured();
+            Set<String> changedFields = changedFields(product, request);
+
+            // Turn the previous document into the one now stored
+            if (request.getName() != null) product.setName(request.getName());
+            if (request.getDescription() != null) product.setDescription(request.getDescription());
+            if (request.getPrice() != null) product.setPrice(request.getPrice());
+            if (request.getStock() != null) product.setStock(request.getStock());
+            if (request.getCategory() != null) product.setCategory(request.getCategory());
+            if (request.getImages() != null) product.setImages(request.getImages());
+            product.setUpdatedAt(updatedAt);
+            product.setVersion(product.getVersion() != null ? product.getVersion() + 1 : 1);
+            Product saved = product;
+
+            System.out.println("Update successful! New version: " + saved.getVersion());
+
+            stockReservationService.finishStockSet(id, stockEpoch);
+
+            // Evict cache, or put the saved product in write_through mode
+            refreshCacheAfterWrite(id, saved);
+            searchResultCache.onProductUpdated(id, previousCategory, saved.getCategory(), changedFields);
+            categoryCatalog.onCategoryChanged(previousCategory, saved.getCategory());
+            featuredProductsCache.onProductChanged(wasFeatured, saved.isFeatured(), changedFields, "product_update");
+
+            return saved;
+        } finally {
+            updateProductTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
         }
-        throw new RuntimeException("Failed to update product after " + maxRetries + " attempts");
     }
 
-    private void publishCacheInvalidation(String productId, Integer version) {
-        if (kafkaTemplate == null) {
-            System.out.println("Kafka not available, skipping cache invalidation event");
+    /**
+     * The update itself cannot lose a race, so only a write conflict reported by Mongo
+     * (e.g. inside a transaction) is retried. Anything else, including a failed
+     * expectedVersion check, goes straight back to the caller.
+     */
+    private Product applyUpdateWithRetry(String id, ProductUpdateRequest request, Instant updatedAt, Long stockEpoch) {
+        return invalidationOutbox.inRetryingTransaction("product_update", "Product " + id, () -> {
+            Product before = productRepository.applyUpdate(id, request, updatedAt, stockEpoch);
+            if (before != null && publishesInvalidations()) {
+                int version = before.getVersion() != null ? before.getVersion() + 1 : 1;
+                publishCacheInvalidation(id, version, "product_update");
+            }
+            return before;
+        });
+    }
+
+    private static Set<String> changedFields(Product product, ProductUpdateRequest request) {
+        Set<String> changed = new HashSet<>();
+        changed.add("updatedAt");
+        if (request.getName() != null && !request.getName().equals(product.getName())) changed.add("name");
+        if (request.getDescription() != null && !request.getDescription().equals(product.getDescription())) changed.add("description");
+        if (request.getPrice() != null && (product.getPrice() == null || request.getPrice().compareTo(product.getPrice()) != 0)) changed.add("price");
+        if (request.getStock() != null && !request.getStock().equals(product.getStock())) changed.add("stock");
+        if (request.getCategory() != null && !request.getCategory().equals(product.getCategory())) changed.add("category");
+        if (request.getImages() != null && !request.getImages().equals(product.getImages())) changed.add("images");
+        return changed;
+    }
+
+    private boolean publishesInvalidations() {
+        return "ttl_invalidate".equals(cacheMode) || "write_through".equals(cacheMode);
+    }
+
+    /**
+     * After a successful save: write_through puts the saved product (with its new
+     * version) into the cache so the next read is a hit; other modes evict it.
+     */
+    private void refreshCacheAfterWrite(String id, Product saved) {
+        Cache cache = cacheManager.getCache("productById");
+        if (cache == null) {
             return;
         }
-        
+        try {
+            if ("write_through".equals(cacheMode)) {
+                productCacheLoader.writeThrough(id, saved, cache);
+                writeThroughPuts.increment();
+            } else {
+                cache.evict(id);
+            }
+        } catch (Exception e) {
+            // The Kafka event (or TTL) still takes care of the entry
+            System.err.println("Warning: Failed to update cache after write for product " + id + ": " + e.getMessage());
+        }
+    }
+
+    private void publishCacheInvalidation(String productId, Integer version, String cause) {
         // Spring Cache uses "cacheName::key" format in Redis
-        // So the key is just the productId, and Spring adds "productById::" prefix
-        CacheInvalidationEvent event = new CacheInvalidationEvent(
-                "product",
-                List.of(productId),  // Just the productId, Spring Cache adds prefix
-                version,
-                Instant.now(),
-                "product_update"
-        );
-
-        kafkaTemplate.send("cache.invalidate", productId, event);
-        invalidationsSent.increment();
+        // So the key is just the productId, and Spring adds "productById::" prefix.
+        // Changes are coalesced with others and sent off the request thread, or written
+        // to the outbox for the relay
+        invalidationBatcher.enqueue(productId, version, cause);
     }
 
     public List<Product> getAllProducts() {
@@ -263,15 +390,28 @@ public class ProductService {
     }
 
     public ProductSearchResponse searchProducts(ProductSearchRequest request) {
-        return productRepository.searchProducts(request);
+        if (!searchResultCache.isCacheable(request)) {
+            return productRepository.searchProducts(request);
+        }
+        ProductSearchResponse cached = searchResultCache.get(request);
+        if (cached != null) {
+            return cached;
+        }
+        ProductSearchResponse response = productRepository.searchProducts(request);
+        searchResultCache.put(request, response);
+        return response;
     }
 
-    public List<String> getCategories() {
-        return productRepository.findDistinctCategories();
+    public CategoryCatalog.Snapshot getCategories() {
+        // In-memory snapshot; no Mongo access
+        return categoryCatalog.snapshot();
     }
 
-    public List<Product> getFeaturedProducts() {
-        return productRepository.findByFeaturedTrue();
+    /**
+     * The featured list as a serialized JSON array, normally straight from the cache.
+     */
+    public byte[] getFeaturedProductsJson() {
+        return featuredProductsCache.getPayload();
     }
 
     public Product createProduct(ProductCreateRequest request) {
@@ -288,15 +428,23 @@ public class ProductService {
         product.setReviewCount(0);
         product.setUpdatedAt(Instant.now());
 
-        Product saved = productRepository.save(product);
-        
-        // Publish cache invalidation event for new product
-        if ("ttl_invalidate".equals(cacheMode)) {
-            try {
-                publishCacheInvalidation(saved.getId(), saved.getVersion());
-            } catch (Exception e) {
-                System.err.println("Warning: Failed to publish cache invalidation event for new product: " + e.getMessage());
+        // Not retried: a new document and an outbox insert cannot conflict with another
+        // transaction (and a retry would have to undo the id and version save() set)
+        Product saved = invalidationOutbox.inTransaction(() -> {
+            Product created = productRepository.save(product);
+            if (publishesInvalidations()) {
+                publishCacheInvalidation(created.getId(), created.getVersion(), "product_create");
             }
+            return created;
+        });
+        productIdFilter.onProductCreated(saved.getId());
+        searchResultCache.onProductAddedOrRemoved(saved.getId(), saved.getCategory());
+        categoryCatalog.onProductCreated(saved.getCategory());
+        featuredProductsCache.onProductChanged(false, saved.isFeatured(), Set.of("featured"), "product_create");
+        
+        // Readers of a brand new product hit the cache right away in write_through mode
+        if ("write_through".equals(cacheMode)) {
+            refreshCacheAfterWrite(saved.getId(), saved);
         }
         
         return saved;
@@ -306,23 +454,29 @@ public class ProductService {
     public boolean deleteProduct(String id) {
         try {
             // Check if product exists
-            if (!productRepository.existsById(id)) {
+            Product existing = productRepository.findById(id).orElse(null);
+            if (existing == null) {
                 return false;
             }
             
             // Delete the product
-            productRepository.deleteById(id);
-            
-            // Publish cache invalidation event
-            if ("ttl_invalidate".equals(cacheMode)) {
-                try {
-                    publishCacheInvalidation(id, null);
-                } catch (Exception e) {
-                    System.err.println("Warning: Failed to publish cache invalidation event for deleted product: " + e.getMessage());
+            // Conflicts with a concurrent update or review of the same product
+            invalidationOutbox.inRetryingTransaction("product_delete", "Product " + id, () -> {
+                productRepository.deleteById(id);
+                if (publishesInvalidations()) {
+                    publishCacheInvalidation(id, null, "product_delete");
                 }
-            }
+                return null;
+            });
+            searchResultCache.onProductAddedOrRemoved(id, existing.getCategory());
+            categoryCatalog.onProductDeleted(existing.getCategory());
+            featuredProductsCache.onProductChanged(existing.isFeatured(), false, Set.of("featured"), "product_delete");
+            stockReservationService.onProductDeleted(id);
+            productIdFilter.onProductDeleted(id);
             
             return true;
+        } catch (OptimisticLockingFailureException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException("Error deleting product: " + id, e);
         }
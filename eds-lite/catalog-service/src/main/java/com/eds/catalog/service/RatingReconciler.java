@@ -0,0 +1,126 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
+import com.eds.catalog.repository.RatingTotals;
+import com.eds.catalog.repository.ReviewRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically recomputes every product's rating counters from the reviews collection.
+ *
+ * New reviews only $inc ratingSum/reviewCount, so the counters can drift (a crash
+ * between saving the review and the increment, reviews removed by hand, products rated
+ * before the counters existed). This job finds the products that differ with one
+ * $group pass over all reviews. For each of them it then reads the version and only
+ * after that sums the product's reviews again, and writes the totals back
+ * compare-and-set on that version: a review counted after the read fails the CAS, and
+ * one counted before it is in the sum, so a run never writes totals older than the
+ * version it checked. Outside transactional outbox mode, a review saved but not yet
+ * counted when the run reads it can leave the product off by one until the next run.
+ */
+@Service
+public class RatingReconciler {
+    private final ProductRepository productRepository;
+    private final ReviewRepository reviewRepository;
+    private final ReviewService reviewService;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rating-reconciler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter runs;
+    private final Counter corrections;
+    private final Counter conflicts;
+    private final Timer runTimer;
+
+    @Value("${catalog.ratings.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.ratings.reconcile.interval-ms:3600000}")
+    private long intervalMs;
+
+    public RatingReconciler(ProductRepository productRepository,
+                            ReviewRepository reviewRepository,
+                            ReviewService reviewService,
+                            MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.reviewRepository = reviewRepository;
+        this.reviewService = reviewService;
+        this.runs = Counter.builder("rating_reconcile_runs").register(meterRegistry);
+        this.corrections = Counter.builder("rating_reconcile_corrections").register(meterRegistry);
+        this.conflicts = Counter.builder("rating_reconcile_conflicts").register(meterRegistry);
+        this.runTimer = Timer.builder("rating_reconcile_latency").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || intervalMs <= 0) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runTimer.record(this::reconcile);
+            } catch (Exception e) {
+                System.err.println("RatingReconciler: run failed: " + e.getMessage());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs one reconciliation pass and returns the number of products corrected.
+     */
+    public int reconcile() {
+        runs.increment();
+        Map<String, RatingTotals> totals = reviewRepository.sumRatingsByProduct();
+        int corrected = 0;
+        for (Product product : productRepository.findRatingCounters(totals.keySet())) {
+            RatingTotals exact = totals.getOrDefault(product.getId(), new RatingTotals(0, 0));
+            if (Objects.equals(product.getRatingSum(), exact.sum())
+                    && Objects.equals(product.getReviewCount(), exact.count())) {
+                continue;
+            }
+            // The bulk totals may predate reviews counted since: version first, then the sum
+            Product current = productRepository.findById(product.getId()).orElse(null);
+            if (current == null) {
+                continue;
+            }
+            exact = reviewRepository.sumRatings(product.getId());
+            if (Objects.equals(current.getRatingSum(), exact.sum())
+                    && Objects.equals(current.getReviewCount(), exact.count())) {
+                continue;
+            }
+            Product saved = productRepository.setRatingCounters(
+                    product.getId(), current.getVersion(), exact.sum(), exact.count());
+            if (saved == null) {
+                // Changed since we read it; the next run looks again
+                conflicts.increment();
+                continue;
+            }
+            System.out.println("RatingReconciler: product " + product.getId() + " had " + current.getReviewCount()
+                    + " reviews / sum " + current.getRatingSum() + ", corrected to " + exact.count()
+                    + " / " + exact.sum());
+            reviewService.onRatingChanged(saved);
+            corrections.increment();
+            corrected++;
+        }
+        return corrected;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,128 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.ReviewPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * Redis cache for the first review page of each product (newest reviews plus the
+ * summary), which is what every product detail page loads.
+ *
+ * All page sizes of a product live in one hash, so a new review drops them with a single
+ * DEL. Deeper cursor pages are not cached. A page read just before a review is added and
+ * stored just after it can survive the invalidation, so entries keep a TTL to bound that.
+ */
+@Service
+public class ReviewPageCache {
+    private static final String PREFIX = "productReviews::";
+
+    // KEYS[1] = hash, ARGV[1] = page size, ARGV[2] = page, ARGV[3] = ttl ms. The TTL is
+    // only set by the first write so later sizes can't keep older ones alive.
+    private static final byte[] PUT_SCRIPT = ("""
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            if redis.call('PTTL', KEYS[1]) < 0 then
+              redis.call('PEXPIRE', KEYS[1], ARGV[3])
+            end
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+    private final Counter hits;
+    private final Counter misses;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory connectionFactory;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.reviews.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.reviews.ttl-ms:300000}")
+    private long ttlMs;
+
+    public ReviewPageCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("review_page_cache_hits").register(meterRegistry);
+        this.misses = Counter.builder("review_page_cache_misses").register(meterRegistry);
+    }
+
+    public boolean isActive() {
+        return enabled && connectionFactory != null && !"none".equals(cacheMode);
+    }
+
+    /**
+     * Returns the cached first page, or null on a miss (or if Redis is unavailable).
+     */
+    public ReviewPage get(String productId, int size) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] raw = connection.hashCommands().hGet(bytes(key(productId)), bytes(String.valueOf(size)));
+            if (raw == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return (ReviewPage) serializer.deserialize(raw);
+        } catch (Exception e) {
+            misses.increment();
+            System.err.println("Review page cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(String productId, int size, ReviewPage page) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(PUT_SCRIPT, ReturnType.INTEGER, 1,
+                    bytes(key(productId)), bytes(String.valueOf(size)), serializer.serialize(page),
+                    bytes(String.valueOf(ttlMs)));
+        } catch (Exception e) {
+            System.err.println("Review page cache write failed: " + e.getMessage());
+        }
+    }
+
+    public void invalidate(String productId) {
+        if (!isActive()) {
+            return;
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(bytes(key(productId)));
+        } catch (Exception e) {
+            // The entry still expires with its TTL
+            System.err.println("Review page cache invalidation failed for product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the cached pages of several products with one DEL.
+     */
+    public void invalidateAll(Collection<String> productIds) {
+        if (!isActive() || productIds.isEmpty()) {
+            return;
+        }
+        byte[][] keys = productIds.stream().map(productId -> bytes(key(productId))).toArray(byte[][]::new);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.keyCommands().del(keys);
+        } catch (Exception e) {
+            System.err.println("Review page cache invalidation failed for " + productIds.size() + " products: "
+                    + e.getMessage());
+        }
+    }
+
+    private static String key(String productId) {
+        return PREFIX + productId;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -1,16 +1,15 @@
 package com.eds.catalog.service;
 
-import com.eds.catalog.model.CacheInvalidationEvent;
 import com.eds.catalog.model.Product;
 import com.eds.catalog.model.Review;
+import com.eds.catalog.model.ReviewPage;
 import com.eds.catalog.model.ReviewRequest;
 import com.eds.catalog.repository.ProductRepository;
 import com.eds.catalog.repository.ReviewRepository;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.util.List;
@@ -20,24 +19,61 @@ public class ReviewService {
     
     private final ReviewRepository reviewRepository;
     private final ProductRepository productRepository;
-    private final KafkaTemplate<String, CacheInvalidationEvent> kafkaTemplate;
+    private final InvalidationBatcher invalidationBatcher;
+    private final CacheManager cacheManager;
+    private final ProductCacheLoader productCacheLoader;
+    private final SearchResultCache searchResultCache;
+    private final FeaturedProductsCache featuredProductsCache;
+    private final ReviewPageCache reviewPageCache;
+    private final InvalidationOutbox invalidationOutbox;
     
     @Value("${cache.mode:ttl_invalidate}")
     private String cacheMode;
 
     public ReviewService(ReviewRepository reviewRepository, 
                         ProductRepository productRepository,
-                        KafkaTemplate<String, CacheInvalidationEvent> kafkaTemplate) {
+                        InvalidationBatcher invalidationBatcher,
+                        CacheManager cacheManager,
+                        ProductCacheLoader productCacheLoader,
+                        SearchResultCache searchResultCache,
+                        FeaturedProductsCache featuredProductsCache,
+                        ReviewPageCache reviewPageCache,
+                        InvalidationOutbox invalidationOutbox) {
         this.reviewRepository = reviewRepository;
         this.productRepository = productRepository;
-        this.kafkaTemplate = kafkaTemplate;
+        this.invalidationBatcher = invalidationBatcher;
+        this.cacheManager = cacheManager;
+        this.productCacheLoader = productCacheLoader;
+        this.searchResultCache = searchResultCache;
+        this.featuredProductsCache = featuredProductsCache;
+        this.reviewPageCache = reviewPageCache;
+        this.invalidationOutbox = invalidationOutbox;
     }
 
-    public List<Review> getProductReviews(String productId) {
-        return reviewRepository.findByProductIdOrderByCreatedAtDesc(productId);
+    /**
+     * Newest reviews first, {@code size} at a time. The first page (no cursor) also
+     * carries the summary and is served from the cache; later pages continue from the
+     * previous page's nextCursor.
+     */
+    public ReviewPage getProductReviews(String productId, String cursor, int size) {
+        if (cursor != null && !cursor.isEmpty()) {
+            return reviewRepository.findPage(productId, cursor, size);
+        }
+        boolean cacheable = reviewPageCache.isActive();
+        if (cacheable) {
+            ReviewPage cached = reviewPageCache.get(productId, size);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        ReviewPage page = reviewRepository.findPage(productId, null, size);
+        page.setSummary(reviewRepository.summarize(productId));
+        if (cacheable) {
+            reviewPageCache.put(productId, size, page);
+        }
+        return page;
     }
 
-    @Transactional
     public Review addReview(String productId, String userId, ReviewRequest request) {
         // Check if user already reviewed this product
         if (reviewRepository.existsByProductIdAndUserId(productId, userId)) {
@@ -49,72 +85,96 @@ public class ReviewService {
             throw new RuntimeException("Rating must be between 1 and 5 stars");
         }
 
-        // Create review
-        Review review = new Review();
-        review.setProductId(productId);
-        review.setUserId(userId);
-        review.setUserName(request.getUserName());
-        review.setRating(request.getRating());
-        review.setComment(request.getComment() != null ? request.getComment().trim() : "");
-        review.setCreatedAt(Instant.now());
+        Instant createdAt = Instant.now();
+
+        // The review, the rating counters and the invalidation commit together in outbox
+        // mode; the caches are only touched after that. Concurrent reviews of one product
+        // conflict on its document, and the retry saves the review again from scratch
+        RatedReview rated = invalidationOutbox.inRetryingTransaction("review_create", "Product " + productId, () -> {
+            // Create review
+            Review review = new Review();
+            review.setProductId(productId);
+            review.setUserId(userId);
+            review.setUserName(request.getUserName());
+            review.setRating(request.getRating());
+            review.setComment(request.getComment() != null ? request.getComment().trim() : "");
+            review.setCreatedAt(createdAt);
+            Review savedReview = reviewRepository.save(review);
+            Product savedProduct = updateProductRating(productId, savedReview.getRating());
+            return new RatedReview(savedReview, savedProduct);
+        });
+        if (rated.product() != null) {
+            refreshAfterRatingChange(rated.product());
+            System.out.println("Updated product " + productId + " rating to " + rated.product().getRating() +
+                             " based on " + rated.product().getReviewCount() + " reviews. Cache evicted.");
+        }
+        // New newest review and a new summary
+        reviewPageCache.invalidate(productId);
 
-        Review savedReview = reviewRepository.save(review);
+        return rated.review();
+    }
 
-        // Update product rating
-        updateProductRating(productId);
+    private record RatedReview(Review review, Product product) {}
 
-        return savedReview;
+    private Product updateProductRating(String productId, int rating) {
+        // Single atomic $inc-style update of the counters; the cost does not depend on
+        // how many reviews the product already has, and concurrent reviews can't race
+        Product savedProduct = productRepository.applyReviewRating(productId, rating);
+        if (savedProduct != null) {
+            publishIfInvalidating(savedProduct);
+        }
+        return savedProduct;
     }
 
-    @CacheEvict(value = "productById", key = "#productId")
-    private void updateProductRating(String productId) {
-        List<Review> reviews = reviewRepository.findByProductIdOrderByCreatedAtDesc(productId);
-        
-        if (reviews.isEmpty()) {
-            return;
+    /**
+     * Refreshes everything derived from a product after its rating counters were written
+     * (also used by {@link RatingReconciler} when it corrects them).
+     */
+    void onRatingChanged(Product savedProduct) {
+        refreshAfterRatingChange(savedProduct);
+        publishIfInvalidating(savedProduct);
+    }
+
+    private void refreshAfterRatingChange(Product savedProduct) {
+        String productId = savedProduct.getId();
+        // Evict cache (or write it through)
+        refreshCacheAfterWrite(productId, savedProduct);
+        // Ratings don't affect which products match a search, only pages that show
+        // this product or are sorted by rating
+        List<String> changedFields = List.of("rating", "reviewCount", "updatedAt");
+        searchResultCache.onProductUpdated(productId, savedProduct.getCategory(), savedProduct.getCategory(),
+                changedFields);
+        featuredProductsCache.onProductChanged(savedProduct.isFeatured(), savedProduct.isFeatured(),
+                changedFields, "rating_update");
+    }
+
+    private void publishIfInvalidating(Product savedProduct) {
+        if ("ttl_invalidate".equals(cacheMode) || "write_through".equals(cacheMode)) {
+            publishCacheInvalidation(savedProduct.getId(), savedProduct.getVersion());
         }
+    }
 
-        // Calculate average rating
-        double averageRating = reviews.stream()
-                .mapToInt(Review::getRating)
-                .average()
-                .orElse(0.0);
-
-        // Update product - bypass cache by using repository directly
-        Product product = productRepository.findById(productId).orElse(null);
-        if (product != null) {
-            product.setRating(Math.round(averageRating * 10.0) / 10.0); // Round to 1 decimal
-            product.setReviewCount(reviews.size());
-            product.setUpdatedAt(Instant.now());
-            
-            // Save and explicitly evict cache
-            Product savedProduct = productRepository.save(product);
-            
-            // Publish cache invalidation event
-            if ("ttl_invalidate".equals(cacheMode)) {
-                try {
-                    publishCacheInvalidation(productId, savedProduct.getVersion());
-                } catch (Exception e) {
-                    System.err.println("Warning: Failed to publish cache invalidation event for rating update: " + e.getMessage());
-                }
+    // A @CacheEvict on a private method is never proxied, so evict explicitly
+    private void refreshCacheAfterWrite(String productId, Product savedProduct) {
+        Cache cache = cacheManager.getCache("productById");
+        if (cache == null) {
+            return;
+        }
+        try {
+            if ("write_through".equals(cacheMode)) {
+                productCacheLoader.writeThrough(productId, savedProduct, cache);
+            } else {
+                cache.evict(productId);
             }
-            
-            System.out.println("Updated product " + productId + " rating to " + product.getRating() + 
-                             " based on " + reviews.size() + " reviews. Cache evicted.");
+        } catch (Exception e) {
+            System.err.println("Warning: Failed to update cache after rating update for product " + productId + ": " + e.getMessage());
         }
     }
 
     private void publishCacheInvalidation(String productId, Integer version) {
-        CacheInvalidationEvent event = new CacheInvalidationEvent(
-                "product",
-                List.of(productId),
-                version,
-                Instant.now(),
-                "rating_update"
-        );
-
-        kafkaTemplate.send("cache.invalidate", productId, event);
-        System.out.println("Published cache invalidation event for product " + productId + " due to rating update");
+        // A review storm on one product collapses into one key in the next batch
+        invalidationBatcher.enqueue(productId, version, "rating_update");
+        System.out.println("Queued cache invalidation event for product " + productId + " due to rating update");
     }
 
     public boolean hasUserReviewed(String productId, String userId) {
@@ -0,0 +1,265 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.model.ProductSearchRequest;
+import com.eds.catalog.model.ProductSearchResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Redis cache for product search/listing pages, keyed by the normalized
+ * {@link ProductSearchRequest}.
+ *
+ * Every entry is added to a set of tags: the ids of the products on the page, the
+ * categories involved (the category filter, or "*" for unfiltered listings, plus the
+ * category of every product on the page) and the sort field. A product change only
+ * drops the tags it can affect, e.g. a stock change invalidates the pages that show
+ * the product and pages sorted by stock, but not every listing in the catalog.
+ *
+ * A page computed just before a write and stored just after it can survive the
+ * invalidation, so entries keep a short TTL to bound that window.
+ */
+@Service
+public class SearchResultCache {
+    private static final String PREFIX = "productSearch::";
+    private static final String ANY_CATEGORY = "*";
+
+    // Fields that decide whether a product matches a search (see searchProducts)
+    private static final Set<String> MATCH_FIELDS = Set.of("name", "description", "tags", "category", "price", "featured");
+
+    // KEYS[1] = entry key, KEYS[2..n] = tag sets, ARGV[1] = value, ARGV[2] = ttl ms.
+    // Tag sets are pushed out to the entry's expiry on every add, so they always
+    // outlive their members.
+    private static final byte[] PUT_SCRIPT = ("""
+            redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2])
+            for i = 2, #KEYS do
+              redis.call('SADD', KEYS[i], KEYS[1])
+              redis.call('PEXPIRE', KEYS[i], ARGV[2])
+            end
+            return 1
+            """).getBytes(StandardCharsets.UTF_8);
+
+    // KEYS = tag sets. Unlinks every entry in them and the sets themselves.
+    private static final byte[] INVALIDATE_SCRIPT = ("""
+            local removed = 0
+            for i = 1, #KEYS do
+              local members = redis.call('SMEMBERS', KEYS[i])
+              for j = 1, #members, 1000 do
+                removed = removed + redis.call('UNLINK', unpack(members, j, math.min(j + 999, #members)))
+              end
+              redis.call('UNLINK', KEYS[i])
+            end
+            return removed
+            """).getBytes(StandardCharsets.UTF_8);
+
+    private final JdkSerializationRedisSerializer serializer = new JdkSerializationRedisSerializer();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter entriesInvalidated;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory connectionFactory;
+
+    @Value("${cache.mode:ttl_invalidate}")
+    private String cacheMode;
+
+    @Value("${cache.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.search.ttl-ms:60000}")
+    private long ttlMs;
+
+    // Only the first pages carry real traffic; deeper pages are not worth the memory
+    @Value("${cache.search.max-page:5}")
+    private int maxPage;
+
+    @Value("${cache.search.max-size:100}")
+    private int maxSize;
+
+    public SearchResultCache(MeterRegistry meterRegistry) {
+        this.hits = Counter.builder("search_cache_hits").register(meterRegistry);
+        this.misses = Counter.builder("search_cache_misses").register(meterRegistry);
+        this.entriesInvalidated = Counter.builder("search_cache_invalidated_entries").register(meterRegistry);
+    }
+
+    public boolean isCacheable(ProductSearchRequest request) {
+        return enabled && connectionFactory != null && !"none".equals(cacheMode)
+                && request.getPage() >= 0 && request.getPage() < maxPage
+                // Cursor pages are deep by definition; only the first one is cached
+                && (request.getCursor() == null || request.getCursor().isEmpty())
+                && request.getSize() > 0 && request.getSize() <= maxSize;
+    }
+
+    /**
+     * Returns the cached page, or null on a miss (or if Redis is unavailable).
+     */
+    public ProductSearchResponse get(ProductSearchRequest request) {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            byte[] raw = connection.stringCommands().get(bytes(entryKey(request)));
+            if (raw == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return (ProductSearchResponse) serializer.deserialize(raw);
+        } catch (Exception e) {
+            misses.increment();
+            System.err.println("Search cache read failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void put(ProductSearchRequest request, ProductSearchResponse response) {
+        Set<String> tags = new LinkedHashSet<>();
+        String category = normalize(request.getCategory());
+        tags.add(categoryTag(category != null ? category : ANY_CATEGORY));
+        tags.add(sortTag(request.getSortBy()));
+        if (response.getProducts() != null) {
+            for (Product product : response.getProducts()) {
+                tags.add(productTag(product.getId()));
+                if (product.getCategory() != null) {
+                    tags.add(categoryTag(normalize(product.getCategory())));
+                }
+            }
+        }
+
+        byte[][] keysAndArgs = new byte[tags.size() + 3][];
+        keysAndArgs[0] = bytes(entryKey(request));
+        int i = 1;
+        for (String tag : tags) {
+            keysAndArgs[i++] = bytes(tag);
+        }
+        keysAndArgs[i++] = serializer.serialize(response);
+        keysAndArgs[i] = bytes(String.valueOf(ttlMs));
+
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.scriptingCommands().eval(PUT_SCRIPT, ReturnType.INTEGER, tags.size() + 1, keysAndArgs);
+        } catch (Exception e) {
+            System.err.println("Search cache write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A product was created or deleted: it enters or leaves listings of its category
+     * and unfiltered listings.
+     */
+    public void onProductAddedOrRemoved(String productId, String category) {
+        List<String> tags = new ArrayList<>();
+        tags.add(productTag(productId));
+        tags.add(categoryTag(ANY_CATEGORY));
+        if (category != null) {
+            tags.add(categoryTag(normalize(category)));
+        }
+        invalidate(tags);
+    }
+
+    /**
+     * A product changed. Pages showing it are always dropped, as are pages sorted by a
+     * changed field. If a field used for matching changed, the product may also have
+     * entered or left listings of its old and new category and unfiltered listings.
+     */
+    public void onProductUpdated(String productId, String oldCategory, String newCategory,
+                                 Collection<String> changedFields) {
+        List<String> tags = new ArrayList<>();
+        tags.add(productTag(productId));
+        for (String field : changedFields) {
+            tags.add(sortTag(field));
+        }
+        if (changedFields.stream().anyMatch(MATCH_FIELDS::contains)) {
+            tags.add(categoryTag(ANY_CATEGORY));
+            if (oldCategory != null) {
+                tags.add(categoryTag(normalize(oldCategory)));
+            }
+            if (newCategory != null) {
+                tags.add(categoryTag(normalize(newCategory)));
+            }
+        }
+        invalidate(tags);
+    }
+
+    private void invalidate(List<String> tags) {
+        if (!enabled || connectionFactory == null || "none".equals(cacheMode)) {
+            return;
+        }
+        byte[][] keys = new byte[tags.size()][];
+        for (int i = 0; i < tags.size(); i++) {
+            keys[i] = bytes(tags.get(i));
+        }
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            Long removed = connection.scriptingCommands().eval(INVALIDATE_SCRIPT, ReturnType.INTEGER, keys.length, keys);
+            if (removed != null && removed > 0) {
+                entriesInvalidated.increment(removed);
+            }
+        } catch (Exception e) {
+            // Entries still expire with their TTL
+            System.err.println("Search cache invalidation failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Normalized key: the search matches case-insensitively, so it is trimmed and
+     * lower-cased; the category is matched exactly, so it is only trimmed. Prices are
+     * compared numerically.
+     */
+    static String entryKey(ProductSearchRequest request) {
+        String direction = "desc".equalsIgnoreCase(request.getSortDirection()) ? "desc" : "asc";
+        return PREFIX + "q=" + encode(normalize(request.getSearch()))
+                + "&c=" + encode(request.getCategory() != null ? request.getCategory().trim() : null)
+                + "&min=" + price(request.getMinPrice())
+                + "&max=" + price(request.getMaxPrice())
+                + "&f=" + (request.getFeatured() != null ? request.getFeatured() : "")
+                + "&sort=" + encode(request.getSortBy()) + ":" + direction
+                + "&p=" + request.getPage()
+                + "&n=" + request.getSize()
+                + "&k=" + (request.getCursor() != null ? "1" : "")
+                + "&t=" + encode(request.getTotal());
+    }
+
+    private static String productTag(String productId) {
+        return PREFIX + "tag::product::" + productId;
+    }
+
+    private static String categoryTag(String category) {
+        return PREFIX + "tag::category::" + encode(category);
+    }
+
+    private static String sortTag(String field) {
+        return PREFIX + "tag::sort::" + encode(field);
+    }
+
+    private static String normalize(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String price(BigDecimal price) {
+        return price != null ? price.stripTrailingZeros().toPlainString() : "";
+    }
+
+    private static String encode(String value) {
+        return value != null ? URLEncoder.encode(value, StandardCharsets.UTF_8) : "";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,188 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.repository.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the stale-read rate off the request path.
+ *
+ * Cache hits are sampled with probability {@code sample-rate} and queued (the queue is
+ * bounded; samples are dropped when it is full). A single background thread drains the
+ * queue, checks the sampled versions against Mongo with one batched $in lookup, and
+ * never reads more than {@code max-reads-per-second} documents. Sampling and budget
+ * drops are independent of staleness, so stale_reads_detected / stale_audit_checked
+ * estimates the stale-read rate.
+ *
+ * The check runs after the hit, so the product may have been written in between. A
+ * read counts as stale only if Mongo's version differs and was written before the
+ * hit; if it was written after (or the product is gone, or has no updatedAt) there is
+ * no telling what was current at the hit, and the read is counted as
+ * stale_audit_unknown instead of checked.
+ */
+@Service
+public class StaleReadAuditor {
+    private final ProductRepository productRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stale-read-auditor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private BlockingQueue<Sample> queue;
+
+    private final Counter sampled;
+    private final Counter checked;
+    private final Counter staleReadsDetected;
+    private final Counter unknown;
+    private final Counter droppedQueueFull;
+    private final Counter droppedBudget;
+
+    @Value("${cache.stale-audit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.stale-audit.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${cache.stale-audit.max-reads-per-second:50}")
+    private int maxReadsPerSecond;
+
+    @Value("${cache.stale-audit.batch-size:100}")
+    private int batchSize;
+
+    @Value("${cache.stale-audit.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${cache.stale-audit.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // Read budget for the current one-second window; only touched by the auditor thread
+    private long windowStartMs;
+    private int readsInWindow;
+
+    public StaleReadAuditor(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.sampled = Counter.builder("stale_audit_sampled").register(meterRegistry);
+        this.checked = Counter.builder("stale_audit_checked").register(meterRegistry);
+        this.staleReadsDetected = Counter.builder("stale_reads_detected").register(meterRegistry);
+        this.unknown = Counter.builder("stale_audit_unknown").register(meterRegistry);
+        this.droppedQueueFull = Counter.builder("stale_audit_dropped").tag("reason", "queue_full").register(meterRegistry);
+        this.droppedBudget = Counter.builder("stale_audit_dropped").tag("reason", "read_budget").register(meterRegistry);
+        Gauge.builder("stale_read_rate", this, auditor -> auditor.checked.count() == 0
+                        ? 0.0 : auditor.staleReadsDetected.count() / auditor.checked.count())
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void init() {
+        queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::drain, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            System.out.println("StaleReadAuditor: sampling " + (sampleRate * 100) + "% of cache hits, max "
+                    + maxReadsPerSecond + " Mongo reads/s");
+        }
+    }
+
+    /**
+     * Called on every cache hit. Cheap: one random draw and, for sampled hits, a
+     * non-blocking offer to the queue. Never touches Mongo.
+     */
+    public void recordHit(String id, Integer cachedVersion) {
+        if (!enabled || cachedVersion == null || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        sampled.increment();
+        if (!queue.offer(new Sample(id, cachedVersion, System.currentTimeMillis()))) {
+            droppedQueueFull.increment();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!queue.isEmpty()) {
+                int budget = remainingBudget();
+                if (budget <= 0) {
+                    // Out of budget for this second: shed everything queued so far
+                    List<Sample> shed = new ArrayList<>();
+                    queue.drainTo(shed);
+                    droppedBudget.increment(shed.size());
+                    return;
+                }
+
+                List<Sample> batch = new ArrayList<>();
+                queue.drainTo(batch, Math.min(batchSize, budget));
+                if (batch.isEmpty()) {
+                    return;
+                }
+                audit(batch);
+            }
+        } catch (Exception e) {
+            System.err.println("StaleReadAuditor: audit failed: " + e.getMessage());
+        }
+    }
+
+    private void audit(List<Sample> batch) {
+        // The same hot id is often sampled several times; look it up once
+        Map<String, List<Sample>> byId = new HashMap<>();
+        for (Sample sample : batch) {
+            byId.computeIfAbsent(sample.id(), k -> new ArrayList<>()).add(sample);
+        }
+        readsInWindow += byId.size();
+
+        Map<String, Product> current = productRepository.findVersionsByIds(byId.keySet());
+        for (Map.Entry<String, List<Sample>> entry : byId.entrySet()) {
+            Product product = current.get(entry.getKey());
+            Integer dbVersion = product != null ? product.getVersion() : null;
+            Instant writtenAt = product != null ? product.getUpdatedAt() : null;
+            for (Sample sample : entry.getValue()) {
+                if (dbVersion != null && dbVersion.equals(sample.cachedVersion())) {
+                    checked.increment();
+                    continue;
+                }
+                // Deleted, or written after the hit: the hit may have been current
+                if (writtenAt == null || writtenAt.toEpochMilli() >= sample.hitAtMs()) {
+                    unknown.increment();
+                    continue;
+                }
+                checked.increment();
+                staleReadsDetected.increment();
+                System.out.println("Stale read detected for product " + sample.id()
+                        + " (cached v" + sample.cachedVersion() + ", db v" + dbVersion + ")");
+            }
+        }
+    }
+
+    private int remainingBudget() {
+        long now = System.currentTimeMillis();
+        if (now - windowStartMs >= 1000) {
+            windowStartMs = now;
+            readsInWindow = 0;
+        }
+        return maxReadsPerSecond - readsInWindow;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private record Sample(String id, Integer cachedVersion, long hitAtMs) {
+    }
+}
@@ -0,0 +1,637 @@
+package com.eds.catalog.service;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.model.StockReservation;
+import com.eds.catalog.repository.ProductRepository;
+import com.eds.catalog.repository.StockState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stock reservations on Redis counters, so a hot SKU can take thousands of decrements
+ * per second without Mongo write conflicts or productById evictions.
+ *
+ * Per product there is an "available" counter (on-hand minus held) and a "held" counter.
+ * reserve moves units from available to held in one Lua script and refuses to go below
+ * zero; release moves them back; commit drops them from held and records the sale in a
+ * pending hash. A background task drains that hash into Mongo with $inc, so Mongo's
+ * stock converges to on-hand. Reads serve stock from the available counter whenever it
+ * exists; the counter is created from Mongo on first use.
+ *
+ * Holds that are neither committed nor released within {@code hold-ms} are released by
+ * a sweeper.
+ *
+ * The sync moves a product's pending delta to an in-flight entry tagged with a sync id,
+ * applies it to Mongo only if Mongo has not recorded that id yet, and clears it after
+ * that succeeded; a crash just means the next run retries it. A counter rebuilt from
+ * Mongo subtracts both pending and in-flight units, and is refused if Mongo is older
+ * than a sync or stock write Redis already knows about.
+ *
+ * An absolute stock write from the admin API replaces all sales made before it. It
+ * first gives the product a new stock epoch in Redis (resetting the counter and setting
+ * unsynced sales aside), then writes stock and epoch to Mongo. Every in-flight delta is
+ * tagged with the epoch it was taken in, and Mongo only applies deltas of its current
+ * epoch: older ones are discarded, newer ones wait for the stock write to land. A
+ * failed stock write is rolled back; one abandoned by a crash is resolved after
+ * {@code stale-set-ms}.
+ */
+@Service
+public class StockReservationService {
+    private static final String PENDING_KEY = "stockPending";
+    private static final String IN_FLIGHT_KEY = "stockInFlight";
+    private static final String SETTING_KEY = "stockSetting";
+    private static final String EXPIRY_KEY = "stockReservations::expiry";
+    private static final int SWEEP_BATCH = 100;
+
+    // Result codes shared by the scripts
+    private static final long INSUFFICIENT = -1;
+    private static final long NO_COUNTER = -2;
+    private static final long OTHER_PRODUCT = -3;
+    private static final long STALE_READ = -4;
+    private static final int INIT_ATTEMPTS = 3;
+
+    // KEYS[1] = available, KEYS[2] = held, KEYS[3] = pending, KEYS[4] = in-flight,
+    // KEYS[5] = sync state; ARGV[1] = Mongo stock, ARGV[2] = product id, ARGV[3] = Mongo
+    // stock epoch, ARGV[4] = Mongo's last sync id. No-op if the counter already exists;
+    // -4 if the Mongo read predates a stock write or sync that Redis has seen.
+    private static final DefaultRedisScript<Long> INIT_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+              return tonumber(current)
+            end
+            local mongoEpoch = tonumber(ARGV[3])
+            local epoch = tonumber(redis.call('HGET', KEYS[5], 'epoch') or '0')
+            local applied = redis.call('HGET', KEYS[5], 'applied')
+            if mongoEpoch < epoch or (applied and applied ~= ARGV[4]) then
+              return -4
+            end
+            local held = tonumber(redis.call('GET', KEYS[2]) or '0')
+            local pending = tonumber(redis.call('HGET', KEYS[3], ARGV[2]) or '0')
+            local inFlight = 0
+            local entry = redis.call('HGET', KEYS[4], ARGV[2])
+            if entry then
+              local delta, syncId, takenEpoch = string.match(entry, '^(%-?%d+):([^:]+):(%d+)$')
+              -- Not in the stock just read, and not replaced by a stock write
+              if syncId ~= ARGV[4] and tonumber(takenEpoch) >= mongoEpoch then
+                inFlight = tonumber(delta)
+              end
+            end
+            local available = math.max(0, tonumber(ARGV[1]) - pending - inFlight - held)
+            redis.call('SET', KEYS[1], available)
+            return available
+            """, Long.class);
+
+    // KEYS[1] = available, KEYS[2] = held, KEYS[3] = reservation, KEYS[4] = expiry set;
+    // ARGV[1] = quantity, ARGV[2] = product id, ARGV[3] = expires at (ms), ARGV[4] = id
+    private static final DefaultRedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[3]) == 1 then
+              if redis.call('HGET', KEYS[3], 'product') ~= ARGV[2] then
+                return -3
+              end
+              return tonumber(redis.call('GET', KEYS[1]) or '0')
+            end
+            local available = redis.call('GET', KEYS[1])
+            if not available then
+              return -2
+            end
+            local quantity = tonumber(ARGV[1])
+            if tonumber(available) < quantity then
+              return -1
+            end
+            redis.call('INCRBY', KEYS[2], quantity)
+            redis.call('HSET', KEYS[3], 'product', ARGV[2], 'qty', quantity)
+            redis.call('ZADD', KEYS[4], ARGV[3], ARGV[4])
+            return redis.call('DECRBY', KEYS[1], quantity)
+            """, Long.class);
+
+    // KEYS[1] = available, KEYS[2] = held, KEYS[3] = reservation, KEYS[4] = expiry set;
+    // ARGV[1] = product id, ARGV[2] = reservation id. Returns the released quantity.
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[3], 'product') ~= ARGV[1] then
+              return -3
+            end
+            local quantity = tonumber(redis.call('HGET', KEYS[3], 'qty'))
+            -- A missing counter is rebuilt from Mongo minus held, so only held changes
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              redis.call('INCRBY', KEYS[1], quantity)
+            end
+            redis.call('DECRBY', KEYS[2], quantity)
+            redis.call('DEL', KEYS[3])
+            redis.call('ZREM', KEYS[4], ARGV[2])
+            return quantity
+            """, Long.class);
+
+    // KEYS[1] = held, KEYS[2] = reservation, KEYS[3] = expiry set, KEYS[4] = pending;
+    // ARGV[1] = product id, ARGV[2] = reservation id. Returns the committed quantity.
+    private static final DefaultRedisScript<Long> COMMIT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[2], 'product') ~= ARGV[1] then
+              return -3
+            end
+            local quantity = tonumber(redis.call('HGET', KEYS[2], 'qty'))
+            redis.call('DECRBY', KEYS[1], quantity)
+            redis.call('DEL', KEYS[2])
+            redis.call('ZREM', KEYS[3], ARGV[2])
+            redis.call('HINCRBY', KEYS[4], ARGV[1], quantity)
+            return quantity
+            """, Long.class);
+
+    // KEYS[1] = pending, KEYS[2] = in-flight, KEYS[3] = sync state; ARGV[1] = product
+    // id, ARGV[2] = new sync id. Returns the in-flight entry "delta:syncId:epoch": an
+    // unfinished one first, otherwise the pending delta moved to in-flight. Nil if none.
+    private static final DefaultRedisScript<String> TAKE_PENDING_SCRIPT = new DefaultRedisScript<>("""
+            local entry = redis.call('HGET', KEYS[2], ARGV[1])
+            if entry then
+              return entry
+            end
+            local delta = redis.call('HGET', KEYS[1], ARGV[1])
+            if not delta then
+              return false
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            local epoch = redis.call('HGET', KEYS[3], 'epoch') or '0'
+            entry = delta .. ':' .. ARGV[2] .. ':' .. epoch
+            redis.call('HSET', KEYS[2], ARGV[1], entry)
+            return entry
+            """, String.class);
+
+    // KEYS[1] = in-flight, KEYS[2] = sync state; ARGV[1] = product id, ARGV[2] = the
+    // entry that was handled, ARGV[3] = its sync id if Mongo applied it, else empty.
+    private static final DefaultRedisScript<Long> CLEAR_IN_FLIGHT_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], ARGV[1]) ~= ARGV[2] then
+              return 0
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            if ARGV[3] ~= '' then
+              redis.call('HSET', KEYS[2], 'applied', ARGV[3])
+            end
+            return 1
+            """, Long.class);
+
+    // KEYS[1] = available, KEYS[2] = held, KEYS[3] = pending, KEYS[4] = sync state,
+    // KEYS[5] = stock sets in progress; ARGV[1] = new on-hand stock, ARGV[2] = product
+    // id, ARGV[3] = now (ms). Starts an absolute stock write and returns its epoch.
+    // Unsynced sales are set aside (restored if the write fails); an unfinished earlier
+    // write hands its set-aside units on.
+    private static final DefaultRedisScript<Long> BEGIN_STOCK_SET_SCRIPT = new DefaultRedisScript<>("""
+            local epoch = math.max(tonumber(redis.call('HGET', KEYS[4], 'epoch') or '0') + 1, tonumber(ARGV[3]))
+            redis.call('HSET', KEYS[4], 'epoch', string.format('%d', epoch))
+            local setAside = tonumber(redis.call('HGET', KEYS[3], ARGV[2]) or '0')
+            redis.call('HDEL', KEYS[3], ARGV[2])
+            local previous = redis.call('HGET', KEYS[5], ARGV[2])
+            if previous then
+              setAside = setAside + tonumber(string.match(previous, ':(%-?%d+)$'))
+            end
+            redis.call('HSET', KEYS[5], ARGV[2],
+                string.format('%d', epoch) .. ':' .. ARGV[3] .. ':' .. string.format('%d', setAside))
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+              local held = tonumber(redis.call('GET', KEYS[2]) or '0')
+              redis.call('SET', KEYS[1], math.max(0, tonumber(ARGV[1]) - held))
+            end
+            return epoch
+            """, Long.class);
+
+    // KEYS[1] = stock sets in progress; ARGV[1] = product id, ARGV[2] = epoch. The
+    // write is in Mongo: the set-aside sales are gone for good.
+    private static final DefaultRedisScript<Long> FINISH_STOCK_SET_SCRIPT = new DefaultRedisScript<>("""
+            local entry = redis.call('HGET', KEYS[1], ARGV[1])
+            if not entry or string.match(entry, '^(%d+):') ~= ARGV[2] then
+              return 0
+            end
+            redis.call('HDEL', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    // KEYS[1] = available, KEYS[2] = pending, KEYS[3] = stock sets in progress;
+    // ARGV[1] = product id, ARGV[2] = epoch. The write did not happen: the set-aside
+    // sales become pending again and the counter is rebuilt from Mongo on next use.
+    private static final DefaultRedisScript<Long> ABORT_STOCK_SET_SCRIPT = new DefaultRedisScript<>("""
+            local entry = redis.call('HGET', KEYS[3], ARGV[1])
+            if not entry or string.match(entry, '^(%d+):') ~= ARGV[2] then
+              return 0
+            end
+            local setAside = tonumber(string.match(entry, ':(%-?%d+)$'))
+            if setAside ~= 0 then
+              redis.call('HINCRBY', KEYS[2], ARGV[1], setAside)
+            end
+            redis.call('HDEL', KEYS[3], ARGV[1])
+            redis.call('DEL', KEYS[1])
+            return 1
+            """, Long.class);
+
+    private final ProductRepository productRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "stock-reservations");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Counter reserved;
+    private final Counter insufficient;
+    private final Counter released;
+    private final Counter committed;
+    private final Counter expired;
+    private final Counter unitsSynced;
+    private final Counter unitsDiscarded;
+    private final Counter syncFailures;
+    private final Timer reserveTimer;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${catalog.stock.reservations.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.stock.reservations.hold-ms:600000}")
+    private long holdMs;
+
+    @Value("${catalog.stock.reservations.sweep-interval-ms:1000}")
+    private long sweepIntervalMs;
+
+    @Value("${catalog.stock.reservations.sync-interval-ms:1000}")
+    private long syncIntervalMs;
+
+    @Value("${catalog.stock.reservations.stale-set-ms:60000}")
+    private long staleSetMs;
+
+    public StockReservationService(ProductRepository productRepository, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.reserved = Counter.builder("stock_reservations").tag("result", "reserved").register(meterRegistry);
+        this.insufficient = Counter.builder("stock_reservations").tag("result", "insufficient").register(meterRegistry);
+        this.released = Counter.builder("stock_releases").register(meterRegistry);
+        this.committed = Counter.builder("stock_commits").register(meterRegistry);
+        this.expired = Counter.builder("stock_reservations_expired").register(meterRegistry);
+        this.unitsSynced = Counter.builder("stock_sync_units").register(meterRegistry);
+        this.unitsDiscarded = Counter.builder("stock_sync_discarded_units").register(meterRegistry);
+        this.syncFailures = Counter.builder("stock_sync_failures").register(meterRegistry);
+        this.reserveTimer = Timer.builder("stock_reserve_latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isActive()) {
+            return;
+        }
+        scheduler.scheduleWithFixedDelay(() -> runQuietly("sweep", this::releaseExpired),
+                sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(() -> runQuietly("sync", this::syncToMongo),
+                syncIntervalMs, syncIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isActive() {
+        return enabled && stringRedisTemplate != null;
+    }
+
+    /**
+     * Holds {@code quantity} units. Throws IllegalStateException if not enough are
+     * available; retrying with the same reservation id returns the existing hold.
+     */
+    public StockReservation reserve(String productId, int quantity, String reservationId) {
+        if (quantity < 1) {
+            throw new IllegalArgumentException("quantity must be at least 1");
+        }
+        String id = reservationId != null && !reservationId.isBlank() ? reservationId : UUID.randomUUID().toString();
+        long start = System.nanoTime();
+        try {
+            Instant expiresAt = Instant.now().plusMillis(holdMs);
+            List<String> keys = List.of(availableKey(productId), heldKey(productId), reservationKey(id), EXPIRY_KEY);
+            Long result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys,
+                    String.valueOf(quantity), productId, String.valueOf(expiresAt.toEpochMilli()), id);
+            if (result != null && result == NO_COUNTER) {
+                initCounter(productId);
+                result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys,
+                        String.valueOf(quantity), productId, String.valueOf(expiresAt.toEpochMilli()), id);
+            }
+            if (result == null || result == NO_COUNTER) {
+                throw new RuntimeException("Stock counter unavailable for product " + productId);
+            }
+            if (result == OTHER_PRODUCT) {
+                throw new IllegalArgumentException("Reservation " + id + " belongs to another product");
+            }
+            if (result == INSUFFICIENT) {
+                insufficient.increment();
+                throw new IllegalStateException("Insufficient stock for product " + productId);
+            }
+            reserved.increment();
+            return new StockReservation(id, productId, quantity, result, expiresAt);
+        } finally {
+            reserveTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Returns held units to stock. Returns false if the reservation does not exist (or
+     * was already released, committed or expired).
+     */
+    public boolean release(String productId, String reservationId) {
+        Long quantity = stringRedisTemplate.execute(RELEASE_SCRIPT,
+                List.of(availableKey(productId), heldKey(productId), reservationKey(reservationId), EXPIRY_KEY),
+                productId, reservationId);
+        if (quantity == null || quantity < 0) {
+            return false;
+        }
+        released.increment();
+        return true;
+    }
+
+    /**
+     * Turns a hold into a sale. The units stay out of stock and are written to Mongo by
+     * the background sync.
+     */
+    public boolean commit(String productId, String reservationId) {
+        Long quantity = stringRedisTemplate.execute(COMMIT_SCRIPT,
+                List.of(heldKey(productId), reservationKey(reservationId), EXPIRY_KEY, PENDING_KEY),
+                productId, reservationId);
+        if (quantity == null || quantity < 0) {
+            return false;
+        }
+        committed.increment();
+        return true;
+    }
+
+    /**
+     * Units available to reserve, creating the counter from Mongo if needed. Null if the
+     * product does not exist.
+     */
+    public Long available(String productId) {
+        String current = stringRedisTemplate.opsForValue().get(availableKey(productId));
+        if (current != null) {
+            return Long.parseLong(current);
+        }
+        return initCounter(productId);
+    }
+
+    /**
+     * Replaces the stock of {@code product} with the counter's, if there is one. Returns
+     * a copy rather than changing an instance that may be held by a cache.
+     */
+    public Product withLiveStock(Product product) {
+        if (product == null || !isActive()) {
+            return product;
+        }
+        try {
+            String current = stringRedisTemplate.opsForValue().get(availableKey(product.getId()));
+            return current != null ? withStock(product, Integer.parseInt(current)) : product;
+        } catch (Exception e) {
+            System.err.println("Stock counter read failed for product " + product.getId() + ": " + e.getMessage());
+            return product;
+        }
+    }
+
+    /**
+     * {@link #withLiveStock} for a list, with one MGET.
+     */
+    public List<Product> withLiveStock(List<Product> products) {
+        if (products.isEmpty() || !isActive()) {
+            return products;
+        }
+        try {
+            List<String> keys = new ArrayList<>(products.size());
+            for (Product product : products) {
+                keys.add(availableKey(product.getId()));
+            }
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return products;
+            }
+            List<Product> result = new ArrayList<>(products.size());
+            for (int i = 0; i < products.size(); i++) {
+                String current = values.get(i);
+                result.add(current != null ? withStock(products.get(i), Integer.parseInt(current)) : products.get(i));
+            }
+            return result;
+        } catch (Exception e) {
+            System.err.println("Stock counter read failed for " + products.size() + " products: " + e.getMessage());
+            return products;
+        }
+    }
+
+    /**
+     * An admin is about to write an absolute stock value: counters switch to it now.
+     * Returns the stock epoch to store with it in Mongo, or null if there are no
+     * counters. Follow up with {@link #finishStockSet} or {@link #abortStockSet}.
+     */
+    public Long beginStockSet(String productId, int stock) {
+        if (!isActive()) {
+            return null;
+        }
+        try {
+            return stringRedisTemplate.execute(BEGIN_STOCK_SET_SCRIPT,
+                    List.of(availableKey(productId), heldKey(productId), PENDING_KEY, syncStateKey(productId), SETTING_KEY),
+                    String.valueOf(stock), productId, String.valueOf(System.currentTimeMillis()));
+        } catch (Exception e) {
+            System.err.println("Failed to update stock counter for product " + productId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void finishStockSet(String productId, Long epoch) {
+        if (epoch == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(FINISH_STOCK_SET_SCRIPT, List.of(SETTING_KEY), productId, String.valueOf(epoch));
+        } catch (Exception e) {
+            // The sync resolves it after stale-set-ms
+            System.err.println("Failed to finish stock set for product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * The stock write begun with {@code epoch} did not reach Mongo. Moves Mongo to that
+     * epoch anyway, so sales taken since can be applied, and restores the set-aside ones.
+     */
+    public void abortStockSet(String productId, Long epoch) {
+        if (epoch == null) {
+            return;
+        }
+        try {
+            productRepository.advanceStockEpoch(productId, epoch);
+            stringRedisTemplate.execute(ABORT_STOCK_SET_SCRIPT,
+                    List.of(availableKey(productId), PENDING_KEY, SETTING_KEY), productId, String.valueOf(epoch));
+        } catch (Exception e) {
+            System.err.println("Failed to roll back stock set for product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    public void onProductDeleted(String productId) {
+        if (!isActive()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.delete(List.of(availableKey(productId), heldKey(productId), syncStateKey(productId)));
+            stringRedisTemplate.opsForHash().delete(PENDING_KEY, productId);
+            stringRedisTemplate.opsForHash().delete(IN_FLIGHT_KEY, productId);
+            stringRedisTemplate.opsForHash().delete(SETTING_KEY, productId);
+        } catch (Exception e) {
+            System.err.println("Failed to drop stock counters for product " + productId + ": " + e.getMessage());
+        }
+    }
+
+    private Long initCounter(String productId) {
+        for (int attempt = 1; attempt <= INIT_ATTEMPTS; attempt++) {
+            StockState state = productRepository.findStockState(productId);
+            if (state == null) {
+                throw new RuntimeException("Product not found: " + productId);
+            }
+            Long available = stringRedisTemplate.execute(INIT_SCRIPT,
+                    List.of(availableKey(productId), heldKey(productId), PENDING_KEY, IN_FLIGHT_KEY,
+                            syncStateKey(productId)),
+                    String.valueOf(state.stock()), productId, String.valueOf(state.epoch()),
+                    state.syncId() != null ? state.syncId() : "");
+            if (available == null || available != STALE_READ) {
+                return available;
+            }
+            // A sync or stock write landed between the read and the script; read again
+        }
+        throw new IllegalStateException("Stock of product " + productId + " is being updated, try again");
+    }
+
+    private void releaseExpired() {
+        Set<String> due = stringRedisTemplate.opsForZSet()
+                .rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis(), 0, SWEEP_BATCH);
+        if (due == null) {
+            return;
+        }
+        for (String reservationId : due) {
+            Object productId = stringRedisTemplate.opsForHash().get(reservationKey(reservationId), "product");
+            if (productId == null) {
+                // Already gone; just drop the schedule entry
+                stringRedisTemplate.opsForZSet().remove(EXPIRY_KEY, reservationId);
+                continue;
+            }
+            // Another instance may sweep the same id; the script only releases once
+            if (release(productId.toString(), reservationId)) {
+                expired.increment();
+            }
+        }
+    }
+
+    private void syncToMongo() {
+        resolveStaleStockSets();
+        Set<String> productIds = new LinkedHashSet<>();
+        stringRedisTemplate.opsForHash().keys(IN_FLIGHT_KEY).forEach(field -> productIds.add(field.toString()));
+        stringRedisTemplate.opsForHash().keys(PENDING_KEY).forEach(field -> productIds.add(field.toString()));
+        for (String productId : productIds) {
+            String entry = stringRedisTemplate.execute(TAKE_PENDING_SCRIPT,
+                    List.of(PENDING_KEY, IN_FLIGHT_KEY, syncStateKey(productId)),
+                    productId, UUID.randomUUID().toString());
+            if (entry == null) {
+                continue;
+            }
+            try {
+                syncEntry(productId, entry);
+            } catch (Exception e) {
+                // Stays in flight for the next run
+                syncFailures.increment();
+                System.err.println("Stock sync failed for product " + productId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void syncEntry(String productId, String entry) {
+        String[] parts = entry.split(":");
+        long delta = Long.parseLong(parts[0]);
+        String syncId = parts[1];
+        long epoch = Long.parseLong(parts[2]);
+
+        String applied;
+        if (productRepository.applyStockSync(productId, delta, syncId, epoch)) {
+            unitsSynced.increment(delta);
+            applied = syncId;
+        } else {
+            StockState state = productRepository.findStockState(productId);
+            if (state != null && syncId.equals(state.syncId())) {
+                // Applied by an earlier run that did not get to clear it
+                applied = syncId;
+            } else if (state == null || state.epoch() > epoch) {
+                // Product deleted, or a later absolute stock write replaced these sales
+                unitsDiscarded.increment(delta);
+                applied = "";
+            } else {
+                // The stock write that started this epoch is not in Mongo yet
+                return;
+            }
+        }
+        stringRedisTemplate.execute(CLEAR_IN_FLIGHT_SCRIPT, List.of(IN_FLIGHT_KEY, syncStateKey(productId)),
+                productId, entry, applied);
+    }
+
+    // Stock writes whose instance died between begin and finish/abort
+    private void resolveStaleStockSets() {
+        Map<Object, Object> setting = stringRedisTemplate.opsForHash().entries(SETTING_KEY);
+        long now = System.currentTimeMillis();
+        setting.forEach((field, value) -> {
+            String productId = field.toString();
+            String[] parts = value.toString().split(":");
+            long epoch = Long.parseLong(parts[0]);
+            if (now - Long.parseLong(parts[1]) < staleSetMs) {
+                return;
+            }
+            StockState state = productRepository.findStockState(productId);
+            if (state != null && state.epoch() >= epoch) {
+                finishStockSet(productId, epoch);
+            } else {
+                abortStockSet(productId, epoch);
+            }
+        });
+    }
+
+    private static void runQuietly(String task, Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (Exception e) {
+            System.err.println("StockReservationService: " + task + " failed: " + e.getMessage());
+        }
+    }
+
+    private static Product withStock(Product product, int stock) {
+        if (Integer.valueOf(stock).equals(product.getStock())) {
+            return product;
+        }
+        Product copy = new Product(product);
+        copy.setStock(stock);
+        return copy;
+    }
+
+    private static String availableKey(String productId) {
+        return "stock::" + productId;
+    }
+
+    private static String heldKey(String productId) {
+        return "stock::" + productId + "::held";
+    }
+
+    // Per product: last stock epoch and last sync id applied to Mongo
+    private static String syncStateKey(String productId) {
+        return "stock::" + productId + "::sync";
+    }
+
+    private static String reservationKey(String reservationId) {
+        return "stockReservation::" + reservationId;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
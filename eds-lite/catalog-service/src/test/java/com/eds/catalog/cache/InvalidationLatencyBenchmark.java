@@ -0,0 +1,161 @@
+package com.eds.catalog.cache;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+/**
+ * Compares how long an L1 invalidation takes to reach a listener over the two
+ * transports: Redis client tracking (write a key, wait for the RESP3 invalidate push)
+ * and Kafka (send a record, wait for the consumer to poll it). Both are measured from
+ * just before the write to arrival, on one machine, one invalidation at a time. The
+ * service's Kafka path adds the InvalidationBatcher window on top of this.
+ * Run with scripts/run-invalidation-benchmark.sh; needs Redis 6+ at REDIS_URI and
+ * Kafka at KAFKA_BOOTSTRAP_SERVERS.
+ */
+public class InvalidationLatencyBenchmark {
+    private static final String KEY_PREFIX = "invalidationBench::";
+    private static final String TOPIC = "cache.invalidate.bench";
+    private static final int WARMUP_ITERATIONS = 200;
+
+    public static void main(String[] args) throws Exception {
+        String redisUri = System.getenv().getOrDefault("REDIS_URI", "redis://localhost:6379");
+        String bootstrapServers = System.getenv().getOrDefault("KAFKA_BOOTSTRAP_SERVERS", "localhost:9092");
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        System.out.printf("%-16s %10s %10s %10s %10s%n", "transport", "p50 ms", "p99 ms", "max ms", "samples");
+        report("redis_tracking", redisTracking(redisUri, iterations));
+        report("kafka", kafka(bootstrapServers, iterations));
+    }
+
+    private static long[] redisTracking(String uri, int iterations) throws InterruptedException {
+        RedisClient client = RedisClient.create(uri);
+        try (StatefulRedisConnection<String, String> listener = client.connect();
+             StatefulRedisConnection<String, String> writer = client.connect()) {
+            BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+            listener.addListener(message -> {
+                if ("invalidate".equals(message.getType())) {
+                    arrivals.add(System.nanoTime());
+                }
+            });
+            listener.sync().clientTracking(TrackingArgs.Builder.enabled().bcast().prefixes(KEY_PREFIX));
+
+            long[] samples = new long[iterations];
+            for (int i = -WARMUP_ITERATIONS; i < iterations; i++) {
+                long start = System.nanoTime();
+                writer.sync().set(KEY_PREFIX + (i & 63), String.valueOf(i));
+                Long arrived = arrivals.poll(5, TimeUnit.SECONDS);
+                if (arrived == null) {
+                    throw new IllegalStateException("No invalidation push received; is this Redis 6+?");
+                }
+                if (i >= 0) {
+                    samples[i] = arrived - start;
+                }
+            }
+            writer.sync().del(IntStream.range(0, 64).mapToObj(i -> KEY_PREFIX + i).toArray(String[]::new));
+            return samples;
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static long[] kafka(String bootstrapServers, int iterations) throws Exception {
+        try (AdminClient admin = AdminClient.create(Map.of("bootstrap.servers", bootstrapServers))) {
+            if (!admin.listTopics().names().get().contains(TOPIC)) {
+                admin.createTopics(List.of(new NewTopic(TOPIC, 1, (short) 1))).all().get();
+            }
+        }
+
+        Properties producerProps = new Properties();
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        // Same durability as the service's producer
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "all");
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, "invalidation-bench-" + UUID.randomUUID());
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+
+        BlockingQueue<Long> arrivals = new LinkedBlockingQueue<>();
+        AtomicBoolean assigned = new AtomicBoolean();
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread poller = new Thread(() -> {
+            try (KafkaConsumer<String, String> consumer = new KafkaConsumer<>(consumerProps)) {
+                consumer.subscribe(List.of(TOPIC));
+                while (running.get()) {
+                    for (ConsumerRecord<String, String> ignored : consumer.poll(Duration.ofMillis(1))) {
+                        arrivals.add(System.nanoTime());
+                    }
+                    if (!consumer.assignment().isEmpty()) {
+                        assigned.set(true);
+                    }
+                }
+            }
+        }, "invalidation-bench-consumer");
+        poller.start();
+
+        try (KafkaProducer<String, String> producer = new KafkaProducer<>(producerProps)) {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (!assigned.get()) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IllegalStateException("Consumer was not assigned a partition within 30s");
+                }
+                Thread.sleep(50);
+            }
+
+            long[] samples = new long[iterations];
+            for (int i = -WARMUP_ITERATIONS; i < iterations; i++) {
+                long start = System.nanoTime();
+                producer.send(new ProducerRecord<>(TOPIC, "product", String.valueOf(i)));
+                Long arrived = arrivals.poll(10, TimeUnit.SECONDS);
+                if (arrived == null) {
+                    throw new IllegalStateException("Record " + i + " did not arrive within 10s");
+                }
+                if (i >= 0) {
+                    samples[i] = arrived - start;
+                }
+            }
+            return samples;
+        } finally {
+            running.set(false);
+            poller.join();
+        }
+    }
+
+    private static void report(String transport, long[] samples) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-16s %10.3f %10.3f %10.3f %10d%n", transport,
+                sorted[sorted.length / 2] / 1e6,
+                sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * 0.99) - 1)] / 1e6,
+                sorted[sorted.length - 1] / 1e6,
+                sorted.length);
+    }
+}
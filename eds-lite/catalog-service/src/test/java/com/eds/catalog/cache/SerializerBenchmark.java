@@ -0,0 +1,67 @@
+package com.eds.catalog.cache;
+
+import com.eds.catalog.model.Product;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Compares payload size and encode/decode throughput of the cached-Product serializers.
+ * Run with scripts/run-serializer-benchmark.sh.
+ */
+public class SerializerBenchmark {
+    private static final int WARMUP_ITERATIONS = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) {
+        Product product = sampleProduct();
+        run("jdk", new JdkSerializationRedisSerializer(), product);
+        run("binary", new ProductBinarySerializer(), product);
+    }
+
+    private static void run(String name, RedisSerializer<Object> serializer, Product product) {
+        byte[] encoded = serializer.serialize(product);
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += serializer.serialize(product).length;
+            sink += ((Product) serializer.deserialize(encoded)).getVersion();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += serializer.serialize(product).length;
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += ((Product) serializer.deserialize(encoded)).getVersion();
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("%-8s size=%5d bytes  encode=%,12.0f ops/s  decode=%,12.0f ops/s  (sink=%d)%n",
+                name, encoded.length,
+                ITERATIONS / (encodeNanos / 1e9),
+                ITERATIONS / (decodeNanos / 1e9),
+                sink % 10);
+    }
+
+    private static Product sampleProduct() {
+        Product product = new Product("65f1c2a9e4b0a1b2c3d4e5f6", "Wireless Noise-Cancelling Headphones",
+                "Over-ear Bluetooth headphones with active noise cancellation and 30 hour battery life.",
+                new BigDecimal("199.99"), 42);
+        product.setCategory("Electronics");
+        product.setTags(List.of("audio", "wireless", "bluetooth", "headphones"));
+        product.setImages(List.of("https://images.example.com/products/headphones-1.jpg"));
+        product.setFeatured(true);
+        product.setRating(4.6);
+        product.setReviewCount(128);
+        product.setVersion(7);
+        product.setUpdatedAt(Instant.parse("2024-03-01T12:34:56.789Z"));
+        return product;
+    }
+}
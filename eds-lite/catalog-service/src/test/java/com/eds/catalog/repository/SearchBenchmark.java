@@ -0,0 +1,121 @@
+package com.eds.catalog.repository;
+
+import com.eds.catalog.model.Product;
+import com.eds.catalog.model.ProductSearchRequest;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures searchProducts latency against catalog size for the regex and text search
+ * engines. Seeds a throwaway database with synthetic products (10k, 100k, 1M by
+ * default), creates the same indexes as the service and times page-0 searches.
+ * Run with scripts/run-search-benchmark.sh; needs a MongoDB at MONGODB_URI.
+ */
+public class SearchBenchmark {
+    private static final String DATABASE = "eds_search_bench";
+    private static final int INSERT_BATCH = 10_000;
+    private static final String[] CATEGORIES = {
+            "Electronics", "Books", "Home", "Garden", "Toys", "Sports", "Clothing", "Beauty", "Grocery", "Automotive"};
+    private static final String[] WORDS = {
+            "wireless", "bluetooth", "headphones", "speaker", "charger", "cable", "laptop", "keyboard", "mouse",
+            "monitor", "camera", "lens", "tripod", "novel", "cookbook", "atlas", "lamp", "chair", "table", "sofa",
+            "pillow", "blanket", "shovel", "hose", "planter", "seeds", "puzzle", "robot", "blocks", "doll",
+            "football", "racket", "helmet", "jacket", "sneakers", "scarf", "shampoo", "lotion", "perfume", "coffee",
+            "tea", "pasta", "olive", "tire", "wiper", "battery", "organic", "premium", "compact", "portable",
+            "vintage", "classic", "deluxe", "ergonomic", "waterproof", "stainless", "bamboo", "leather", "cotton", "steel"};
+
+    public static void main(String[] args) {
+        String uri = System.getenv().getOrDefault("MONGODB_URI", "mongodb://localhost:27017");
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray()
+                : new int[]{10_000, 100_000, 1_000_000};
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        try (MongoClient client = MongoClients.create(uri)) {
+            MongoTemplate mongoTemplate = new MongoTemplate(client, DATABASE);
+            mongoTemplate.getDb().drop();
+            ProductIndexes.ensureIndexes(mongoTemplate, mongoTemplate.getCollectionName(Product.class));
+            ProductRepositoryImpl repository = new ProductRepositoryImpl(mongoTemplate);
+
+            Random random = new Random(42);
+            long seeded = 0;
+            System.out.printf("%-10s %-6s %-14s %10s %10s %10s%n", "products", "engine", "query", "p50 ms", "p99 ms", "hits");
+            for (int size : sizes) {
+                seeded = seed(mongoTemplate, random, seeded, size);
+                for (String engine : new String[]{"regex", "text"}) {
+                    repository.setSearchEngine(engine);
+                    run(repository, size, engine, "search", queries, false);
+                    run(repository, size, engine, "search+cat", queries, true);
+                }
+            }
+            mongoTemplate.getDb().drop();
+        }
+    }
+
+    private static long seed(MongoTemplate mongoTemplate, Random random, long from, long to) {
+        for (long start = from; start < to; start += INSERT_BATCH) {
+            List<Product> batch = new ArrayList<>(INSERT_BATCH);
+            for (long i = start; i < Math.min(to, start + INSERT_BATCH); i++) {
+                batch.add(syntheticProduct(random));
+            }
+            mongoTemplate.insertAll(batch);
+        }
+        return to;
+    }
+
+    private static void run(ProductRepositoryImpl repository, int size, String engine, String label,
+                            int queries, boolean withCategory) {
+        Random random = new Random(7);
+        long[] latenciesNanos = new long[queries];
+        long hits = 0;
+        for (int i = 0; i < queries; i++) {
+            ProductSearchRequest request = new ProductSearchRequest();
+            request.setSearch(WORDS[random.nextInt(WORDS.length)]);
+            if (withCategory) {
+                request.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            }
+            long start = System.nanoTime();
+            hits += repository.searchProducts(request).getTotalElements();
+            latenciesNanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latenciesNanos);
+        System.out.printf("%-10d %-6s %-14s %10.1f %10.1f %10d%n", size, engine, label,
+                latenciesNanos[queries / 2] / 1e6,
+                latenciesNanos[Math.min(queries - 1, (int) Math.ceil(queries * 0.99) - 1)] / 1e6,
+                hits / queries);
+    }
+
+    private static Product syntheticProduct(Random random) {
+        Product product = new Product();
+        product.setName(words(random, 3));
+        product.setDescription(words(random, 12));
+        product.setPrice(BigDecimal.valueOf(random.nextInt(100_000), 2));
+        product.setStock(random.nextInt(500));
+        product.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        product.setTags(List.of(WORDS[random.nextInt(WORDS.length)], WORDS[random.nextInt(WORDS.length)]));
+        product.setFeatured(random.nextInt(50) == 0);
+        product.setRating(1 + random.nextInt(40) / 10.0);
+        product.setReviewCount(random.nextInt(200));
+        product.setUpdatedAt(Instant.now());
+        return product;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,19 @@
+package com.eds.order.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+@Configuration
+public class MongoConfig {
+
+    // Makes @Transactional real, so an order and its outbox event commit together.
+    // Needs a replica set (Atlas is one); a standalone mongod rejects transactions.
+    @Bean
+    @ConditionalOnProperty(name = "orders.outbox.transactional", havingValue = "true")
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
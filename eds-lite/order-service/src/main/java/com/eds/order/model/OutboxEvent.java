@@ -0,0 +1,70 @@
+package com.eds.order.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * An order event waiting to be relayed to Kafka. Written with the order it describes;
+ * deleted once the broker has acknowledged it. The ObjectId gives the order.
+ */
+@Document(collection = "outbox")
+public class OutboxEvent {
+    @Id
+    private String id;
+    private String topic;
+    private String key;
+    private OrderEvent event;
+    private Instant createdAt;
+
+    public OutboxEvent() {
+    }
+
+    public OutboxEvent(String topic, String key, OrderEvent event, Instant createdAt) {
+        this.topic = topic;
+        this.key = key;
+        this.event = event;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public void setTopic(String topic) {
+        this.topic = topic;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public void setKey(String key) {
+        this.key = key;
+    }
+
+    public OrderEvent getEvent() {
+        return event;
+    }
+
+    public void setEvent(OrderEvent event) {
+        this.event = event;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,12 @@
+package com.eds.order.repository;
+
+import com.eds.order.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxRepository extends MongoRepository<OutboxEvent, String>, OutboxRepositoryCustom {
+    // Oldest first; ObjectIds increase with insertion time
+    java.util.List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+}
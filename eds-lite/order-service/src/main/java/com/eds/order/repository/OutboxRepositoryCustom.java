@@ -0,0 +1,9 @@
+package com.eds.order.repository;
+
+public interface OutboxRepositoryCustom {
+    /**
+     * Takes or renews the relay lease for {@code leaseMs}. True if {@code owner} holds it
+     * afterwards; false while another owner's lease has not expired.
+     */
+    boolean tryAcquireRelayLease(String owner, long leaseMs);
+}
@@ -0,0 +1,37 @@
+package com.eds.order.repository;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public class OutboxRepositoryImpl implements OutboxRepositoryCustom {
+    private static final String LEASES = "outbox_leases";
+    private static final String RELAY_LEASE = "order-events-relay";
+
+    private final MongoTemplate mongoTemplate;
+
+    public OutboxRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public boolean tryAcquireRelayLease(String owner, long leaseMs) {
+        Instant now = Instant.now();
+        Query query = Query.query(Criteria.where("_id").is(RELAY_LEASE)
+                .orOperator(Criteria.where("owner").is(owner), Criteria.where("expiresAt").lt(now)));
+        Update update = Update.update("owner", owner).set("expiresAt", now.plusMillis(leaseMs));
+        try {
+            // No match means someone else holds it: the upsert then collides on _id
+            mongoTemplate.upsert(query, update, LEASES);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+}
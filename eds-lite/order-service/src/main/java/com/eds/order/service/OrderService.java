@@ -3,8 +3,11 @@ package com.eds.order.service;
 import com.eds.order.model.CreateOrderRequest;
 import com.eds.order.model.Order;
 import com.eds.order.model.OrderEvent;
+import com.eds.order.model.OutboxEvent;
 import com.eds.order.repository.OrderRepository;
+import com.eds.order.repository.OutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,14 +19,24 @@ import java.util.UUID;
 @Service
 public class OrderService {
     private final OrderRepository orderRepository;
+    private final OutboxRepository outboxRepository;
     
     @Autowired(required = false)
     private KafkaTemplate<String, OrderEvent> kafkaTemplate;
 
-    public OrderService(OrderRepository orderRepository) {
+    @Value("${orders.outbox.enabled:true}")
+    private boolean outboxEnabled;
+
+    public OrderService(OrderRepository orderRepository, OutboxRepository outboxRepository) {
         this.orderRepository = orderRepository;
+        this.outboxRepository = outboxRepository;
     }
 
+    // With orders.outbox.transactional the order and its outbox event commit together;
+    // otherwise the event is written right after the order. Not retried on write
+    // conflicts: both are inserts of new documents (fresh order id, fresh event id), and
+    // the relay only touches events already committed, so two transactions never
+    // write the same document
     @Transactional
     public Order createOrder(CreateOrderRequest request) {
         Order order = new Order();
@@ -40,14 +53,19 @@ public class OrderService {
 
         // Publish order event asynchronously (don't block response)
         if (kafkaTemplate != null) {
+            OrderEvent event = new OrderEvent(
+                    saved.getId(),
+                    OrderEvent.OrderEventType.Created,
+                    saved.getCustomerId(),
+                    saved.getTotal(),
+                    Instant.now()
+            );
+            if (outboxEnabled) {
+                // OutboxRelay sends it; a failure here fails (or rolls back) the order
+                outboxRepository.insert(new OutboxEvent("order.events", saved.getId(), event, event.getTimestamp()));
+                return saved;
+            }
             try {
-                OrderEvent event = new OrderEvent(
-                        saved.getId(),
-                        OrderEvent.OrderEventType.Created,
-                        saved.getCustomerId(),
-                        saved.getTotal(),
-                        Instant.now()
-                );
                 kafkaTemplate.send("order.events", saved.getId(), event);
             } catch (Exception e) {
                 // Log error but don't fail the order creation
@@ -0,0 +1,151 @@
+package com.eds.order.service;
+
+import com.eds.order.model.OrderEvent;
+import com.eds.order.model.OutboxEvent;
+import com.eds.order.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the outbox collection to Kafka.
+ *
+ * Sends the oldest {@code batch-size} events in insertion order, waits until Kafka has
+ * acknowledged all of them and only then deletes them and reads the next batch. The
+ * producer is idempotent and events are keyed by order id, so each order's events
+ * arrive in the order they were written. If Kafka is down nothing is deleted and the
+ * batch is retried after {@code retry-ms}; a batch that was sent but not deleted is
+ * sent again (at-least-once).
+ *
+ * One instance relays at a time, holding a lease in outbox_leases.
+ */
+@Service
+public class OutboxRelay {
+    private final OutboxRepository outboxRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicLong oldestAgeMs = new AtomicLong();
+    private final Counter relayed;
+    private final Counter failures;
+    private final MeterRegistry meterRegistry;
+    // Only touched on the relay thread
+    private long leaseRenewAtMs;
+    private long pausedUntilMs;
+
+    @Autowired(required = false)
+    private KafkaTemplate<String, OrderEvent> kafkaTemplate;
+
+    @Value("${orders.outbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${orders.outbox.relay.poll-interval-ms:50}")
+    private long pollIntervalMs;
+
+    @Value("${orders.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${orders.outbox.relay.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${orders.outbox.relay.retry-ms:1000}")
+    private long retryMs;
+
+    @Value("${orders.outbox.relay.lease-ms:10000}")
+    private long leaseMs;
+
+    public OutboxRelay(OutboxRepository outboxRepository, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.meterRegistry = meterRegistry;
+        this.relayed = Counter.builder("outbox_relayed").register(meterRegistry);
+        this.failures = Counter.builder("outbox_relay_failures").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled || kafkaTemplate == null) {
+            return;
+        }
+        // Age of the oldest event not yet relayed, as of the last poll
+        Gauge.builder("outbox_oldest_age_ms", oldestAgeMs, AtomicLong::get).register(meterRegistry);
+        scheduler.scheduleWithFixedDelay(this::drainQuietly, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void drainQuietly() {
+        long now = System.currentTimeMillis();
+        if (now < pausedUntilMs) {
+            return;
+        }
+        try {
+            drain();
+        } catch (Exception e) {
+            failures.increment();
+            pausedUntilMs = now + retryMs;
+            System.err.println("OutboxRelay: relay failed, retrying in " + retryMs + "ms: " + e.getMessage());
+        }
+    }
+
+    private void drain() throws Exception {
+        while (holdsLease()) {
+            List<OutboxEvent> batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                oldestAgeMs.set(0);
+                return;
+            }
+            Instant oldest = batch.get(0).getCreatedAt();
+            oldestAgeMs.set(oldest != null ? System.currentTimeMillis() - oldest.toEpochMilli() : 0);
+
+            List<CompletableFuture<?>> sends = new ArrayList<>(batch.size());
+            for (OutboxEvent event : batch) {
+                sends.add(kafkaTemplate.send(event.getTopic(), event.getKey(), event.getEvent()));
+            }
+            CompletableFuture.allOf(sends.toArray(new CompletableFuture<?>[0])).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+
+            outboxRepository.deleteAllById(batch.stream().map(OutboxEvent::getId).toList());
+            relayed.increment(batch.size());
+            if (batch.size() < batchSize) {
+                oldestAgeMs.set(0);
+                return;
+            }
+        }
+    }
+
+    // Renews at half the lease; an instance without it checks again after that long
+    private boolean holdsLease() {
+        long now = System.currentTimeMillis();
+        if (now < leaseRenewAtMs) {
+            return true;
+        }
+        if (outboxRepository.tryAcquireRelayLease(owner, leaseMs)) {
+            leaseRenewAtMs = now + leaseMs / 2;
+            return true;
+        }
+        pausedUntilMs = now + leaseMs / 2;
+        return false;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -216,6 +216,7 @@ def generate_report():
         'A': 'No Cache (CACHE_MODE=none) - Direct DB calls',
         'B': 'TTL Only (CACHE_MODE=ttl) - Cache without invalidation',
         'C': 'TTL + Invalidation (CACHE_MODE=ttl_invalidate) - Full system',
+        'D': 'Write-Through (CACHE_MODE=write_through) - Writes update the cache',
         'CURRENT': 'Current System State'
     }
     
@@ -1,7 +1,7 @@
 #!/bin/bash
 
 # EDS-Lite: Automated Test Runner for All Three Scenarios
-# This script runs Scenarios A, B, and C and generates a comparison report
+# This script runs Scenarios A, B, C, and D and generates a comparison report
 
 set -e
 
@@ -258,7 +258,15 @@ run_k6_test "C" "run-k6-c.sh"
 backup_metrics "C"
 stop_catalog_service
 
-print_header "Step 5: Generating Results Summary"
+print_header "Step 5: Running Scenario D (Write-Through)"
+clear_metrics
+start_catalog_service "write_through"
+sleep 10  # Extra time for warmup
+run_k6_test "D" "run-k6-d.sh"
+backup_metrics "D"
+stop_catalog_service
+
+print_header "Step 6: Generating Results Summary"
 
 # Create a summary report
 REPORT_FILE="$RESULTS_DIR/$TIMESTAMP/RESULTS_SUMMARY.txt"
@@ -284,6 +292,11 @@ SCENARIO C: TTL + Kafka Invalidation (CACHE_MODE=ttl_invalidate)
 - Cache enabled with Kafka-based invalidation
 - Expected: Low latency, 85-95% hit rate, <1% stale reads, <100ms inconsistency
 
+SCENARIO D: Write-Through Cache (CACHE_MODE=write_through)
+-----------------------------------------------------------
+- Writes put the saved product into the cache instead of evicting it
+- Expected: Same as C, plus no cache miss on the first read after an update
+
 ========================================
 Detailed Metrics
 ========================================
@@ -295,7 +308,7 @@ cd "$SCRIPT_DIR"
 if command -v python3 &> /dev/null; then
     echo "Running metrics analysis..."
     
-    for scenario in A B C; do
+    for scenario in A B C D; do
         echo "" >> "$REPORT_FILE"
         echo "--- Scenario $scenario ---" >> "$REPORT_FILE"
         
@@ -326,6 +339,7 @@ echo "Files generated:"
 echo "  - scenario-A-metrics/  (No cache)"
 echo "  - scenario-B-metrics/  (TTL only)"
 echo "  - scenario-C-metrics/  (TTL + Invalidation)"
+echo "  - scenario-D-metrics/  (Write-through)"
 echo "  - RESULTS_SUMMARY.txt  (Summary report)"
 echo ""
 echo -e "${BLUE}========================================${NC}"
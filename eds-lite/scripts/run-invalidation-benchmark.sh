@@ -0,0 +1,17 @@
+#!/bin/bash
+
+# Compares L1 invalidation latency over Redis client tracking (RESP3 push) and
+# Kafka. Needs Redis 6+ (REDIS_URI, default redis://localhost:6379) and Kafka
+# (KAFKA_BOOTSTRAP_SERVERS, default localhost:9092).
+# Usage: run-invalidation-benchmark.sh [iterations]
+
+set -e
+
+SCRIPT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+CATALOG_SERVICE_DIR="$SCRIPT_DIR/../catalog-service"
+
+cd "$CATALOG_SERVICE_DIR"
+# The benchmark lives in src/test/java so it stays out of the service jar
+mvn -q test-compile
+mvn -q exec:java -Dexec.mainClass=com.eds.catalog.cache.InvalidationLatencyBenchmark -Dexec.classpathScope=test \
+    -Dexec.args="${1:-2000}"
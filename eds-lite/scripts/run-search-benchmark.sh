@@ -0,0 +1,22 @@
+#!/bin/bash
+
+# Compares regex and text-index product search latency as the catalog grows
+# (10k, 100k and 1M products by default). Needs a MongoDB at MONGODB_URI; the
+# benchmark seeds and drops its own eds_search_bench database.
+#
+# Usage: ./run-search-benchmark.sh [sizes] [queries per engine]
+#   e.g. ./run-search-benchmark.sh 10000,100000 100
+
+set -e
+
+SCRIPT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+CATALOG_SERVICE_DIR="$SCRIPT_DIR/../catalog-service"
+
+SIZES="${1:-10000,100000,1000000}"
+QUERIES="${2:-50}"
+
+cd "$CATALOG_SERVICE_DIR"
+# The benchmark lives in src/test/java so it stays out of the service jar
+mvn -q test-compile
+mvn -q exec:java -Dexec.mainClass=com.eds.catalog.repository.SearchBenchmark -Dexec.classpathScope=test \
+    -Dexec.args="$SIZES $QUERIES"
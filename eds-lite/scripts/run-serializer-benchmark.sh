@@ -0,0 +1,14 @@
+#!/bin/bash
+
+# Compares the JDK and compact binary serializers used for cached products
+# (payload size and encode/decode throughput). No Redis/Mongo/Kafka needed.
+
+set -e
+
+SCRIPT_DIR="$( cd "$( dirname "${BASH_SOURCE[0]}" )" && pwd )"
+CATALOG_SERVICE_DIR="$SCRIPT_DIR/../catalog-service"
+
+cd "$CATALOG_SERVICE_DIR"
+# The benchmark lives in src/test/java so it stays out of the service jar
+mvn -q test-compile
+mvn -q exec:java -Dexec.mainClass=com.eds.catalog.cache.SerializerBenchmark -Dexec.classpathScope=test
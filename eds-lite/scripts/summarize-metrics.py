@@ -99,12 +99,18 @@ def summarize():
         print()
     
     # Stale reads
+    # Stale reads are detected on a sample of cache hits (StaleReadAuditor), so the
+    # rate is relative to the audited samples, not to all requests
     stale_reads = sum(v['value'] for v in metrics.get('catalog.stale_reads_detected', []))
-    stale_rate = (stale_reads / total_requests * 100) if total_requests > 0 else 0
+    stale_checked = sum(v['value'] for v in metrics.get('catalog.stale_audit_checked', []))
+    stale_unknown = sum(v['value'] for v in metrics.get('catalog.stale_audit_unknown', []))
+    stale_rate = (stale_reads / stale_checked * 100) if stale_checked > 0 else 0
     
     print("STALE READ METRICS:")
     print("-" * 80)
     print(f"  Stale Reads Detected: {stale_reads:10.0f}")
+    print(f"  Sampled Hits Checked: {stale_checked:10.0f}")
+    print(f"  Written After Hit:    {stale_unknown:10.0f}")
     print(f"  Total Read Requests:  {total_requests:10.0f}")
     print(f"  Stale Rate:           {stale_rate:10.2f}%")
     print()
@@ -112,12 +118,20 @@ def summarize():
     # Invalidation metrics
     invalidations_sent = sum(v['value'] for v in metrics.get('catalog.invalidations_sent', []))
     invalidations_received = sum(v['value'] for v in metrics.get('catalog.invalidations_received', []))
+    write_through_puts = sum(v['value'] for v in metrics.get('catalog.cache_write_through_puts', []))
+    invalidations_upserted = sum(v['value'] for v in metrics.get('catalog.invalidations_upserted', []))
+    invalidation_batches = sum(v['value'] for v in metrics.get('catalog.invalidation_batches_sent', []))
     
     if invalidations_sent > 0 or invalidations_received > 0:
         print("INVALIDATION METRICS:")
         print("-" * 80)
         print(f"  Invalidations Sent:     {invalidations_sent:10.0f}")
         print(f"  Invalidations Received: {invalidations_received:10.0f}")
+        if invalidation_batches > 0:
+            print(f"  Kafka Records Sent:     {invalidation_batches:10.0f}  ({invalidations_sent / invalidation_batches:.1f} keys/record)")
+        if write_through_puts > 0:
+            print(f"  Write-Through Puts:     {write_through_puts:10.0f}")
+            print(f"  Upserts by Consumer:    {invalidations_upserted:10.0f}")
         print()
     
     # Inconsistency window (convert from seconds to milliseconds)